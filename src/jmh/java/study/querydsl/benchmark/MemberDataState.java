@@ -0,0 +1,79 @@
+package study.querydsl.benchmark;
+
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.loader.MemberBulkLoader;
+
+/**
+ * 벤치마크 공통 상태 : JPA 계층만 띄우고(웹 서버 X), 메모리 H2에 rows 만큼의 회원을 넣어 둔다.
+ * -> -p rows=1000000 처럼 데이터 크기를 바꿔 가며 측정할 수 있다.
+ * -> -p membersPerTeam=100000 처럼 팀 1개의 크기도 바꿀 수 있다.
+ * -> -p indexed=true 이면 검색 조건용 인덱스(indexed 프로필)를 만든 상태에서 측정한다.
+ */
+@State(Scope.Benchmark)
+public class MemberDataState {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"100"})
+    public int membersPerTeam;
+
+    @Param({"false"})
+    public boolean indexed;
+
+    public ConfigurableApplicationContext context;
+    public EntityManager entityManager;
+    public JPAQueryFactory queryFactory;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.profiles.active=" + (indexed ? "bench,indexed" : "bench"), // local 프로필(InitMember) 제외
+                        "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "--spring.main.banner-mode=off",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                        "--decorator.datasource.p6spy.enable-logging=false",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--member.result-cache.enabled=false"); // 캐시가 아니라 쿼리 자체를 측정
+
+        entityManager = context.getBean(EntityManager.class);
+        queryFactory = new JPAQueryFactory(entityManager);
+
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type){
+        return context.getBean(type);
+    }
+
+    // 팀 1개당 membersPerTeam명, 나이는 0 ~ 99
+    private void seed(){
+        context.getBean(MemberBulkLoader.class).load(teamCount(), rows);
+    }
+
+    public int teamCount(){
+        return Math.max(1, rows / membersPerTeam);
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydsl.benchmark;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberPageStrategy;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 페이징 방식 비교 : searchPageSimple / searchPageComplex1 / searchPageComplex2 / DEFERRED_JOIN
+ * -> page를 뒤로 보낼수록(offset이 커질수록) DEFERRED_JOIN과 offset 방식의 차이가 커진다.
+ * -> [전체 카운트] 캐시의 영향을 빼기 위해, 매 호출마다 캐시를 비운다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PagingBenchmark {
+
+    @Param({"0", "400"})
+    public int page;
+
+    private MemberRepository repository;
+    private MemberCountCache countCache;
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp(MemberDataState data){
+
+        repository = data.getBean(MemberRepository.class);
+        countCache = data.getBean(MemberCountCache.class);
+
+        condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        int lastPage = Math.max(0, data.rows * 9 / 10 / 20 - 1); // 나이 10 이상 = 전체의 90%
+        pageRequest = PageRequest.of(Math.min(page, lastPage), 20);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple(){
+        return repository.searchPageSimple(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex1(){
+        countCache.invalidateAll();
+        return repository.searchPageComplex1(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex2(){
+        countCache.invalidateAll();
+        return repository.searchPageComplex2(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageDeferredJoin(){
+        countCache.invalidateAll();
+        return repository.searchPage(condition, pageRequest, MemberPageStrategy.DEFERRED_JOIN);
+    }
+
+}
@@ -0,0 +1,78 @@
+package study.querydsl.benchmark;
+
+
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * DTO 프로젝션 방식 비교 : Projections.bean(setter) / fields(필드 주입) / constructor(생성자) / @QueryProjection
+ * -> 조회 결과를 DTO로 만드는 비용만 비교하기 위해 나이 조건으로 row 수를 제한한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private MemberDataState data;
+
+    @Setup
+    public void setUp(MemberDataState data){
+        this.data = data;
+    }
+
+    @Benchmark
+    public List<MemberDto> bean(){
+        return data.queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.age.lt(10))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> fields(){
+        return data.queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.age.lt(10))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> constructor(){
+        return data.queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.age.lt(10))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> queryProjection(){
+        return data.queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .where(member.age.lt(10))
+                .fetch();
+    }
+
+}
@@ -0,0 +1,73 @@
+package study.querydsl.benchmark;
+
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 일반 조회(findAll)와 읽기 전용 조회(findAllReadOnly) 비교
+ * 실행 예) -Pjmh.include=ReadOnlyBenchmark -Pjmh.args="-p rows=100000 -prof gc"
+ *
+ * 1. managed : 엔티티마다 스냅샷을 만들고, flush 시 모든 엔티티를 스냅샷과 비교한다.
+ * 2. readOnly : 스냅샷도, 비교도 없다.
+ * -> 조회 + flush() 시간을 비교하고, -prof gc의 gc.alloc.rate.norm(1번 실행당 할당 바이트)으로 메모리 차이를 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadOnlyBenchmark {
+
+    private EntityManager em;
+    private TransactionTemplate transaction;
+    private TransactionTemplate readOnlyTransaction;
+    private MemberJpaRepository repository;
+
+    @Setup
+    public void setUp(MemberDataState data){
+
+        em = data.entityManager;
+        PlatformTransactionManager transactionManager = data.getBean(PlatformTransactionManager.class);
+        transaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        repository = data.getBean(MemberJpaRepository.class);
+    }
+
+    @Benchmark
+    public int managed(){
+        return transaction.execute(status -> {
+            List<Member> members = repository.findAll();
+            em.flush(); // 변경 감지 : 모든 엔티티를 스냅샷과 비교
+            return members.size();
+        });
+    }
+
+    @Benchmark
+    public int readOnly(){
+        return readOnlyTransaction.execute(status -> {
+            List<Member> members = repository.findAllReadOnly();
+            em.flush(); // 읽기 전용 엔티티는 비교하지 않는다.
+            return members.size();
+        });
+    }
+
+}
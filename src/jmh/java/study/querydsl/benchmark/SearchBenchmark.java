@@ -0,0 +1,94 @@
+package study.querydsl.benchmark;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberSqlSearch;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberJpaRepository 동적 쿼리 비교
+ * 1. searchByBuilder : BooleanBuilder
+ * 2. search : 조건 모양 별로 미리 만들어 둔 JPQL 재사용(MemberSearchQueryCache)
+ * 3. searchQuerydsl : 매번 프로젝션/조건을 새로 만들고 JPQL을 다시 만드는 기존 방식
+ * 4. searchSql : 2와 같은 조건을 querydsl-sql + JDBC로 실행(MemberSqlSearch, member.search.engine: SQL)
+ * -> 2, 3을 -prof gc로 비교하면 JPQL 캐시로 줄어든 CPU/할당량을 볼 수 있다.
+ * -> 2, 4를 비교하면 하이버네이트(JPQL -> SQL 변환, 결과 처리)를 거치는 비용을 볼 수 있다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private MemberJpaRepository repository;
+    private MemberSqlSearch sqlSearch;
+    private MemberDataState data;
+    private MemberSearchCondition condition;
+
+    @Setup
+    public void setUp(MemberDataState data){
+
+        this.data = data;
+        this.repository = data.getBean(MemberJpaRepository.class);
+        this.sqlSearch = data.getBean(MemberSqlSearch.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team1");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder(){
+        return repository.searchByBuilder(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search(){
+        return repository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchSql(){
+        return sqlSearch.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchQuerydsl(){
+        return data.queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        team.name.eq(condition.getTeamName()),
+                        member.age.goe(condition.getAgeGoe()),
+                        member.age.loe(condition.getAgeLoe()))
+                .fetch();
+    }
+
+}
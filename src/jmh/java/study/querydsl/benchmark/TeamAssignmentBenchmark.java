@@ -0,0 +1,91 @@
+package study.querydsl.benchmark;
+
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀에 회원 1명을 추가하는 비용이 팀 크기와 상관없는지 확인
+ * 실행 예) -Pjmh.include=TeamAssignmentBenchmark -Pjmh.args="-p rows=200000 -p membersPerTeam=100,200000"
+ *
+ * 1. loadedTeam : em.find()로 팀을 조회한 뒤 new Member(.., team) -> Team.members는 초기화되지 않는다.
+ * 2. teamReference : saveToTeam() -> 팀도 조회하지 않는다.
+ * 3. initializedMembers : 예전처럼 Team.members가 초기화되는 경우(비교용) -> 팀 크기에 비례해서 느려진다.
+ * -> 팀 크기를 유지하기 위해 매번 롤백한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TeamAssignmentBenchmark {
+
+    private EntityManager em;
+    private TransactionTemplate transaction;
+    private MemberJpaRepository repository;
+    private Long teamId;
+
+    @Setup
+    public void setUp(MemberDataState data){
+
+        em = data.entityManager;
+        transaction = new TransactionTemplate(data.getBean(PlatformTransactionManager.class));
+        repository = data.getBean(MemberJpaRepository.class);
+        teamId = data.queryFactory.select(team.id).from(team).orderBy(team.id.asc()).fetchFirst(); // 첫 번째 팀 = membersPerTeam명
+    }
+
+    @Benchmark
+    public Member loadedTeam(){
+        return transaction.execute(status -> {
+            Member member = new Member("benchmark", 20, em.find(Team.class, teamId));
+            em.persist(member);
+            em.flush();
+            status.setRollbackOnly();
+            return member;
+        });
+    }
+
+    @Benchmark
+    public Member teamReference(){
+        return transaction.execute(status -> {
+            Member member = new Member("benchmark", 20);
+            repository.saveToTeam(member, teamId);
+            em.flush();
+            status.setRollbackOnly();
+            return member;
+        });
+    }
+
+    @Benchmark
+    public Member initializedMembers(){
+        return transaction.execute(status -> {
+            Team team = em.find(Team.class, teamId);
+            team.getMembers().size(); // 팀의 회원 전체 로딩
+            Member member = new Member("benchmark", 20, team);
+            em.persist(member);
+            em.flush();
+            status.setRollbackOnly();
+            return member;
+        });
+    }
+
+}
@@ -0,0 +1,66 @@
+package study.querydsl.config;
+
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 복제 지연(lag > 0)이 있는 replica에서 읽었는지 기록한다.(ReplicaRoutingDataSource가 기록하고, 캐시가 확인한다.)
+ * -> 지연된 replica에는 방금 커밋된 변경이 아직 없을 수 있다. 이 결과를 캐싱하면, 커밋 후 무효화가 끝난 뒤에 오래된 값이 다시 들어간다.
+ *
+ * 1. 검색 결과 캐시, 카운트 캐시 : 지연된 replica에서 읽은 결과는 캐싱하지 않는다.
+ *      long mark = LaggingReplicaReads.mark();
+ *      T result = query.get();
+ *      if(!LaggingReplicaReads.since(mark)) -> 캐싱
+ * 2. 2차 캐시 : 그 트랜잭션의 세션을 CacheMode.GET(캐시에서 읽기만 하고 넣지 않음)으로 바꾼다.
+ *
+ * replica 프로필이 아니면 아무것도 기록되지 않으므로 캐싱에 영향이 없다.
+ */
+public final class LaggingReplicaReads {
+
+    // 쓰레드별 누적 횟수 : 중첩된 캐시 호출(결과 캐시 안의 카운트 캐시)도 각자 mark로 구분한다.
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private LaggingReplicaReads() {
+    }
+
+    public static long mark(){
+        return COUNT.get()[0];
+    }
+
+    /**
+     * mark 이후 지연된 replica에서 읽었는지
+     * -> 같은 트랜잭션에서 이미 가져온 커넥션을 다시 쓰는 경우도 포함한다.(커넥션은 트랜잭션 첫 쿼리에서 한 번만 고른다.)
+     */
+    public static boolean since(long mark){
+        return COUNT.get()[0] != mark || TransactionSynchronizationManager.hasResource(LaggingReplicaReads.class);
+    }
+
+    public static void record(){
+
+        COUNT.get()[0]++;
+
+        if(!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(LaggingReplicaReads.class)){
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(LaggingReplicaReads.class, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LaggingReplicaReads.class);
+            }
+        });
+
+        // 트랜잭션의 EntityManager는 트랜잭션이 끝나면 닫히므로(replica 프로필은 open-in-view: false), 되돌려 놓지 않아도 된다.
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if(resource instanceof EntityManagerHolder holder){
+                holder.getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.config;
+
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class QueryExecutorConfig {
+
+    /**
+     * 페이징 조회 시, [데이터 내용] 쿼리와 [전체 카운트] 쿼리를 동시에 날리기 위한 쓰레드 풀 (searchPageParallel 전용)
+     * -> 쿼리 1개당 커넥션 1개를 사용하므로, 커넥션 풀(기본 10개)보다 크게 잡지 않는다.
+     * -> 풀과 큐가 가득 차면 바로 거절한다.(AbortPolicy -> QueryTimeoutException, 503)
+     *    요청 쓰레드에서 직접 실행(CallerRunsPolicy)하면 [데이터 내용]/[전체 카운트] 타임아웃이 걸리지 않는다.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor memberQueryExecutor(@Value("${member.parallel-page.threads:8}") int threads){
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setThreadNamePrefix("member-query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * 벌크 update/delete의 청크를 동시에 실행하기 위한 쓰레드 풀 (MemberBulkOperations)
+     * -> 조회용 풀과 나눠서, 벌크 작업 1개가 페이징 조회의 쓰레드를 모두 차지하지 않도록 한다.
+     * -> 타임아웃이 없는 작업이므로, 가득 차면 요청 쓰레드에서 직접 실행한다.(CallerRunsPolicy)
+     */
+    @Bean
+    public ThreadPoolTaskExecutor memberBulkExecutor(@Value("${member.bulk.threads:4}") int threads){
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setThreadNamePrefix("member-bulk-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+}
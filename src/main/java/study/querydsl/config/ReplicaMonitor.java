@@ -0,0 +1,236 @@
+package study.querydsl.config;
+
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.ReplicaStatus;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * replica 상태 관리 (ReplicaRoutingDataSource가 읽기 전용 커넥션을 어느 replica에서 가져올지 결정)
+ *
+ * 1. 헬스 체크 : checkInterval 마다 replica에서 heartbeat 행을 조회한다.(조회 실패 = 장애)
+ * 2. 복제 지연 : primary가 checkInterval 마다 heartbeat 행에 현재 시각을 쓰고,
+ *              replica에 복제된 시각과 primary에 마지막으로 쓴 시각의 차이를 지연(lag)으로 본다.
+ *              -> lag가 maxLag를 넘으면, 따라잡을 때까지 그 replica로는 보내지 않는다.
+ * 3. 라운드 로빈 : 사용 가능한(정상 + 지연 maxLag 이하) replica를 돌아가며 고른다.
+ *                -> 사용 가능한 replica가 없으면 primary를 사용한다.
+ *
+ * 주의) 처음 헬스 체크 전까지는 모든 replica를 사용하지 않는다.(primary 사용)
+ */
+@Slf4j
+public class ReplicaMonitor {
+
+    public static final String PRIMARY = "primary";
+
+    private static final String CREATE_HEARTBEAT = "create table if not exists replica_heartbeat (id int primary key, beat_at timestamp(9) not null)";
+    private static final String WRITE_HEARTBEAT = "merge into replica_heartbeat key(id) values (1, ?)";
+    private static final String READ_HEARTBEAT = "select beat_at from replica_heartbeat where id = 1";
+
+    private final DataSource primary;
+    private final JdbcTemplate primaryJdbc;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration maxLag;
+    private final Duration checkInterval;
+
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replica-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Instant lastBeat; // primary에 마지막으로 쓴 heartbeat
+
+    /**
+     * @param replicas 이름 -> replica DataSource (순서대로 라운드 로빈)
+     */
+    public ReplicaMonitor(DataSource primary, Map<String, DataSource> replicas, Duration maxLag, Duration checkInterval){
+        this.primary = primary;
+        this.primaryJdbc = new JdbcTemplate(primary);
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+    }
+
+    @PostConstruct
+    public void start(){
+        try {
+            primaryJdbc.execute(CREATE_HEARTBEAT);
+            beat();
+        } catch (DataAccessException e) {
+            log.warn("primary에 heartbeat를 쓰지 못했습니다. : {}", e.getMessage());
+        }
+        long interval = checkInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close(){
+        scheduler.shutdownNow();
+        closeQuietly(primary);
+        replicas.forEach(replica -> closeQuietly(replica.dataSource));
+    }
+
+    public DataSource primary(){
+        return primary;
+    }
+
+    // AbstractRoutingDataSource.setTargetDataSources() 용 : 이름 -> DataSource
+    public Map<Object, Object> targetDataSources(){
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach(replica -> targets.put(replica.name, replica.dataSource));
+        return targets;
+    }
+
+    /**
+     * 다음 읽기 전용 커넥션을 가져올 replica 이름 (사용 가능한 replica가 없으면 PRIMARY)
+     */
+    public String nextReplica(){
+
+        int size = replicas.size();
+        if(size == 0){
+            return PRIMARY;
+        }
+
+        int start = Math.floorMod(roundRobin.getAndIncrement(), size);
+        for(int i = 0; i < size; i++){
+            Replica replica = replicas.get((start + i) % size);
+            if(replica.isAvailable(maxLag)){
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    // 마지막 헬스 체크에서 복제 지연이 있었는지 (max-lag 이하라 사용은 하지만, 최근 커밋이 아직 없을 수 있다.)
+    public boolean isLagging(Object name){
+
+        for (Replica replica : replicas) {
+            if(replica.name.equals(name)){
+                Duration current = replica.lag;
+                return current == null || !current.isZero();
+            }
+        }
+        return false;
+    }
+
+    // 커넥션을 가져오지 못한 경우 : 다음 헬스 체크가 성공할 때까지 사용하지 않는다.
+    public void markDown(Object name, Exception cause){
+
+        for (Replica replica : replicas) {
+            if(replica.name.equals(name)){
+                replica.down(cause);
+                log.warn("replica [{}] 연결 실패, primary/다른 replica로 전환 : {}", name, cause.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 헬스 체크 + 복제 지연 측정 (checkInterval 마다 실행)
+     * -> replica를 먼저 확인하고 primary에 새 heartbeat를 쓴다. 지난번 heartbeat까지 복제됐다면 lag = 0
+     */
+    public void check(){
+
+        Instant expected = lastBeat;
+
+        for (Replica replica : replicas) {
+            try {
+                Timestamp replicated = new JdbcTemplate(replica.dataSource).queryForObject(READ_HEARTBEAT, Timestamp.class);
+                Duration lag = (expected == null || replicated == null)
+                        ? null // 비교할 heartbeat가 없으면 지연을 알 수 없으므로 사용하지 않는다.
+                        : Duration.between(replicated.toInstant(), expected);
+                replica.up(lag != null && lag.isNegative() ? Duration.ZERO : lag);
+            } catch (DataAccessException e) {
+                replica.down(e);
+            }
+        }
+
+        try {
+            beat();
+        } catch (DataAccessException e) {
+            log.warn("primary에 heartbeat를 쓰지 못했습니다. : {}", e.getMessage());
+        }
+    }
+
+    public List<ReplicaStatus> status(){
+        return replicas.stream()
+                .map(replica -> new ReplicaStatus(
+                        replica.name,
+                        replica.healthy,
+                        replica.isAvailable(maxLag),
+                        replica.lag == null ? null : replica.lag.toMillis(),
+                        replica.error,
+                        replica.checkedAt))
+                .toList();
+    }
+
+    private void beat(){
+        Instant now = Instant.now();
+        primaryJdbc.update(WRITE_HEARTBEAT, Timestamp.from(now));
+        lastBeat = now;
+    }
+
+    private static void closeQuietly(DataSource dataSource){
+        if(dataSource instanceof Closeable closeable){
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                log.warn("커넥션 풀 종료 실패", e);
+            }
+        }
+    }
+
+    private static class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+
+        private volatile boolean healthy;
+        private volatile Duration lag; // null이면 아직 측정 전
+        private volatile String error;
+        private volatile Instant checkedAt;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        boolean isAvailable(Duration maxLag){
+            Duration current = lag;
+            return healthy && current != null && current.compareTo(maxLag) <= 0;
+        }
+
+        void up(Duration lag){
+            this.lag = lag;
+            this.error = null;
+            this.checkedAt = Instant.now();
+            this.healthy = true;
+        }
+
+        void down(Exception cause){
+            this.healthy = false;
+            this.error = cause.getMessage();
+            this.checkedAt = Instant.now();
+        }
+    }
+}
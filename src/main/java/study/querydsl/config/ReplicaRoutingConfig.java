@@ -0,0 +1,74 @@
+package study.querydsl.config;
+
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 읽기 전용 replica 라우팅 (replica 프로필일 때만 등록, application-replica.yaml)
+ *
+ * 1. primary : spring.datasource.url
+ * 2. replica : member.replica.urls (계정, 드라이버는 primary와 같다.)
+ * 3. DataSource 빈 = LazyConnectionDataSourceProxy(ReplicaRoutingDataSource)
+ *    -> JPA, JdbcTemplate, querydsl-sql 모두 이 DataSource를 사용하므로, 리포지토리 코드는 바뀌지 않는다.
+ *    -> @Transactional(readOnly = true)인 검색, 페이징, 카운트 쿼리만 replica로 간다.
+ *
+ * 4. 복제 지연(lag > 0)이 있는 replica에서 읽은 결과는 검색 결과 캐시, 카운트 캐시, 2차 캐시에 넣지 않는다.(LaggingReplicaReads)
+ *    -> 커밋 후 무효화가 끝난 뒤에 오래된 값이 다시 캐시되지 않도록
+ * 5. spring.jpa.open-in-view: false (application-replica.yaml)
+ *    -> 켜 두면 웹 요청 동안 EntityManager가 첫 트랜잭션의 커넥션을 계속 들고 있어서, 요청 전체가 처음 고른 DB에서 실행된다.
+ */
+@Configuration
+@Profile("replica")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaMonitor replicaMonitor(DataSourceProperties properties,
+                                         @Value("${member.replica.urls}") List<String> urls,
+                                         @Value("${member.replica.max-lag:5s}") Duration maxLag,
+                                         @Value("${member.replica.check-interval:1s}") Duration checkInterval,
+                                         @Value("${member.replica.connection-timeout:500ms}") Duration connectionTimeout){
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for(int i = 0; i < urls.size(); i++){
+            String name = "replica-" + (i + 1);
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(i).trim())
+                    .build();
+            replica.setPoolName(name);
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(connectionTimeout.toMillis()); // 장애 난 replica에서 오래 기다리지 않는다.
+            replicas.put(name, replica);
+        }
+
+        return new ReplicaMonitor(primary, replicas, maxLag, checkInterval);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaMonitor replicaMonitor){
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaMonitor);
+        routing.afterPropertiesSet();
+
+        // 트랜잭션 시작 시점이 아니라 첫 쿼리 시점에 커넥션을 가져온다.(그때는 readOnly 여부를 알 수 있다.)
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+}
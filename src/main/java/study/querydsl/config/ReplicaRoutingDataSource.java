@@ -0,0 +1,59 @@
+package study.querydsl.config;
+
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * @Transactional(readOnly = true) 트랜잭션의 커넥션은 replica에서, 그 외(쓰기, 읽기-쓰기 트랜잭션, 트랜잭션 밖)는 primary에서 가져온다.
+ *
+ * 주의) 트랜잭션 매니저는 readOnly 여부를 동기화 정보에 기록하기 [전에] 커넥션을 가져오므로,
+ *      반드시 LazyConnectionDataSourceProxy로 감싸서 첫 쿼리 시점에 커넥션을 고르게 한다.(ReplicaRoutingConfig)
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaMonitor monitor;
+
+    public ReplicaRoutingDataSource(ReplicaMonitor monitor) {
+        this.monitor = monitor;
+        setTargetDataSources(monitor.targetDataSources());
+        setDefaultTargetDataSource(monitor.primary());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if(TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            return monitor.nextReplica();
+        }
+        return ReplicaMonitor.PRIMARY;
+    }
+
+    /**
+     * 고른 replica에서 커넥션을 가져오지 못하면(장애), 그 replica를 제외하고 다음 replica -> primary 순서로 다시 시도한다.
+     * -> 다음 헬스 체크까지 기다리지 않는다.
+     * 복제 지연이 있는 replica에서 가져왔으면 LaggingReplicaReads에 기록한다.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        Object key = determineCurrentLookupKey();
+        while(!ReplicaMonitor.PRIMARY.equals(key)){
+            DataSource replica = getResolvedDataSources().get(key);
+            try {
+                Connection connection = replica.getConnection();
+                if(monitor.isLagging(key)){
+                    LaggingReplicaReads.record(); // 이 트랜잭션에서 읽은 결과는 캐싱하지 않는다.
+                }
+                return connection;
+            } catch (SQLException e) {
+                monitor.markDown(key, e);
+                key = monitor.nextReplica();
+            }
+        }
+        return monitor.primary().getConnection();
+    }
+}
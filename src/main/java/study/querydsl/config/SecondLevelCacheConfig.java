@@ -0,0 +1,71 @@
+package study.querydsl.config;
+
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * 하이버네이트 2차 캐시 (JCache + Caffeine, 애플리케이션 메모리 안의 로컬 캐시)
+ *
+ * 1. Team, Member, Team.members에 @Cache(region = ...)를 붙였다.
+ * 2. region 마다 TTL, 최대 개수를 member.second-level-cache.<region>.ttl / max-size로 설정한다.
+ * 3. 통계(적중률 등)는 member.second-level-cache.statistics=true 일 때만 hibernate.generate_statistics로 모으고,
+ *    /caches/second-level에서 조회한다.(꺼져 있으면 0)
+ *
+ * 주의) JdbcTemplate 등 하이버네이트를 거치지 않는 변경은 캐시가 모르므로, 직접 evict 해야 한다.(MemberUpsertRepositoryImpl 참조)
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String TEAM = "team";
+    public static final String MEMBER = "member";
+    public static final String TEAM_MEMBERS = "team.members";
+
+    public static final List<String> REGIONS = List.of(TEAM, MEMBER, TEAM_MEMBERS);
+
+    /**
+     * 컨텍스트마다 별도의 CacheManager를 만든다.
+     * -> CachingProvider는 (URI, ClassLoader) 별로 CacheManager 1개를 JVM 전체에서 같이 쓴다.
+     *    같은 JVM에서 컨텍스트를 여러 번 띄우면(테스트) 먼저 만든 region이 재사용되어, 이 컨텍스트의 TTL/크기 설정이 무시된다.
+     * -> 컨텍스트 전용 ClassLoader(부모에 위임만 한다)로 구분하고, 컨텍스트가 닫히면 CacheManager도 닫는다.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(Environment env){
+
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        ClassLoader contextClassLoader = new ClassLoader(SecondLevelCacheConfig.class.getClassLoader()) {};
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), contextClassLoader);
+
+        for (String region : REGIONS) {
+            String prefix = "member.second-level-cache." + region.replace('.', '-');
+            Duration ttl = env.getProperty(prefix + ".ttl", Duration.class, Duration.ofMinutes(10));
+            long maxSize = env.getProperty(prefix + ".max-size", Long.class, 10_000L);
+
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+            configuration.setMaximumSize(OptionalLong.of(maxSize)); // 넘으면 자주 안 쓰는 것부터 제거(W-TinyLFU)
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    // 하이버네이트가 새 CacheManager를 만들지 않고, 위에서 region을 설정한 CacheManager를 사용하게 한다.
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager){
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+}
@@ -0,0 +1,55 @@
+package study.querydsl.controller;
+
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.config.SecondLevelCacheConfig;
+import study.querydsl.dto.CountCacheStats;
+import study.querydsl.dto.ResultCacheStats;
+import study.querydsl.dto.SecondLevelCacheStats;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberSearchResultCache;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsController { // 캐시 튜닝(TTL, 크기)을 위한 적중률 조회용
+
+    private final MemberCountCache countCache;
+    private final MemberSearchResultCache resultCache;
+    private final EntityManagerFactory emf;
+
+    @GetMapping("/caches/member-count")
+    public CountCacheStats memberCountCacheStats(){
+        return countCache.stats();
+    }
+
+    @GetMapping("/caches/member-search")
+    public ResultCacheStats memberSearchCacheStats(){
+        return resultCache.stats();
+    }
+
+    @GetMapping("/caches/second-level")
+    public List<SecondLevelCacheStats> secondLevelCacheStats(){
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        return SecondLevelCacheConfig.REGIONS.stream()
+                .map(region -> {
+                    CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+                    if(stats == null){ // 통계가 꺼져 있거나, 아직 region이 만들어지지 않았다.
+                        return new SecondLevelCacheStats(region, 0, 0, 0, 0);
+                    }
+                    return new SecondLevelCacheStats(region, stats.getHitCount(), stats.getMissCount(),
+                            stats.getPutCount(), stats.getElementCountInMemory());
+                })
+                .toList();
+    }
+
+}
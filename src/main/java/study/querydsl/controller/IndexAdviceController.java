@@ -0,0 +1,29 @@
+package study.querydsl.controller;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.IndexRecommendation;
+import study.querydsl.repository.MemberSearchIndexAdvisor;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class IndexAdviceController { // 실제 검색 조건 통계를 근거로 한 인덱스 추천
+
+    private final MemberSearchIndexAdvisor indexAdvisor;
+
+    @GetMapping("/members/index-advice")
+    public List<IndexRecommendation> indexAdvice(){
+        return indexAdvisor.recommendations();
+    }
+
+    @PostMapping("/members/index-advice/reset") // 인덱스를 만든 뒤, 통계를 다시 모을 때
+    public void reset(){
+        indexAdvisor.reset();
+    }
+
+}
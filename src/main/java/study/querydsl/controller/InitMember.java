@@ -13,7 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
-@Profile("local") // 아래 빈은 test에서는 동작하지 않고, 애플리케이션이 로딩될 때에만 동작한다.
+@Profile("local & !bulk & !generate") // 아래 빈은 test에서는 동작하지 않고, 애플리케이션이 로딩될 때에만 동작한다.(bulk, generate 프로필이면 MemberBulkLoader가 대신)
 @Component
 @RequiredArgsConstructor
 public class InitMember {
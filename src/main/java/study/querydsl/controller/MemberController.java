@@ -1,18 +1,41 @@
 package study.querydsl.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberCreateRequest;
+import study.querydsl.dto.MemberCursorSlice;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.InvalidPageRequestException;
 import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.entity.Member;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberWriteBehindQueue;
 
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequiredArgsConstructor
@@ -20,11 +43,36 @@ public class MemberController {
 
     private final MemberJpaRepository repository;
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<MemberWriteBehindQueue> writeBehindQueue; // member.write-behind.enabled=true 일 때만 존재
     @GetMapping("/v1/members")
     public List<MemberTeamDto>  searchMemberV1(MemberSearchCondition condition){
         return repository.search(condition);
     }
 
+    // v1과 결과는 같지만, List로 모으지 않고 1 row씩 NDJSON(한 줄에 JSON 1개)으로 바로 응답에 쓴다.
+    // -> 조회 결과가 아무리 커도 서버 메모리 사용량이 일정하다.
+    @GetMapping(value = "/v1/members/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void searchMemberV1Stream(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class);
+        OutputStream out = response.getOutputStream();
+
+        repository.searchStream(condition, dto -> {
+            try {
+                out.write(writer.writeValueAsBytes(dto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // 클라이언트가 연결을 끊으면 스트리밍(트랜잭션)도 중단
+            }
+        });
+
+        out.flush();
+    }
+
 
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
@@ -34,10 +82,69 @@ public class MemberController {
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(defaultValue = "false") boolean parallel){
 
+        if(parallel){ // [데이터 내용], [전체 카운트] 쿼리를 동시에 실행
+            return memberRepository.searchPageParallel(condition,pageable);
+        }
         return memberRepository.searchPageComplex1(condition,pageable);
 
     }
 
+    // 커서 기반 페이징 : 응답의 nextCursor를 다음 요청의 cursor로 넘겨주면 된다.
+    @GetMapping("/v4/members")
+    public MemberCursorSlice searchMemberV4(MemberSearchCondition condition,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "20") int size){
+
+        return memberRepository.searchSlice(condition,cursor,size);
+
+    }
+
+    // 무한 스크롤 용 : [전체 카운트] 쿼리를 날리지 않는다.
+    // approximateTotal=true 이면 테이블 통계 등으로 [대략]의 전체 카운트를 함께 준다.
+    @GetMapping("/v5/members")
+    public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable,
+                                               @RequestParam(defaultValue = "false") boolean approximateTotal){
+
+        if(approximateTotal){
+            return memberRepository.searchPageApproximate(condition,pageable);
+        }
+        return memberRepository.searchSliceByPage(condition,pageable);
+
+    }
+
+    // 회원 가입 : write-behind 모드이면 큐에 넣고, batch가 커밋된 뒤에 회원 id로 응답한다.
+    @PostMapping("/v1/members")
+    public CompletableFuture<Long> createMember(@RequestBody MemberCreateRequest request){
+
+        Member member = new Member(request.getUsername(), request.getAge());
+
+        MemberWriteBehindQueue queue = writeBehindQueue.getIfAvailable();
+        if(queue != null){
+            return queue.enqueue(member, request.getTeamId());
+        }
+        return CompletableFuture.completedFuture(repository.create(member, request.getTeamId()));
+
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class) // write-behind 큐가 가득 찼으면 503 (잠시 후 재시도)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleRejected(RejectedExecutionException e){
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class) // 조회가 제한 시간 안에 끝나지 않았거나, 조회 쓰레드가 모두 사용 중이면 503
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleQueryTimeout(QueryTimeoutException e){
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(InvalidPageRequestException.class) // 잘못된 페이징 파라미터(커서, size, 정렬)만 400으로 응답
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidPageRequest(InvalidPageRequestException e){
+        return e.getMessage();
+    }
+
 }
@@ -0,0 +1,62 @@
+package study.querydsl.controller;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.ImportSummary;
+import study.querydsl.loader.ImportFormat;
+import study.querydsl.loader.MemberImporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@RestController
+@RequiredArgsConstructor
+public class MemberImportController {
+
+    private static final String TEXT_CSV = "text/csv";
+
+    private final MemberImporter importer;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 회원 대량 등록 : 요청 body(CSV 또는 NDJSON)를 스트림으로 읽으면서 batch 단위로 등록한다.
+     * -> 응답도 NDJSON : batch가 커밋될 때마다 진행 상황 1줄, 마지막에 결과 요약 1줄
+     * -> @RequestBody로 받으면 body 전체를 메모리에 올리므로, HttpServletRequest의 InputStream을 직접 읽는다.
+     */
+    @PostMapping(value = "/members/import",
+            consumes = {TEXT_CSV, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importMembers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        ImportFormat format = request.getContentType().startsWith(TEXT_CSV) ? ImportFormat.CSV : ImportFormat.NDJSON;
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+
+        ImportSummary summary = importer.importMembers(request.getInputStream(), format, progress -> {
+            try {
+                writeLine(out, progress);
+                out.flush(); // 진행 상황을 바로 클라이언트에게 보낸다.
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        writeLine(out, summary);
+        out.flush();
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
+}
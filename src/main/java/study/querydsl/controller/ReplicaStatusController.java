@@ -0,0 +1,25 @@
+package study.querydsl.controller;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.config.ReplicaMonitor;
+import study.querydsl.dto.ReplicaStatus;
+
+import java.util.List;
+
+@Profile("replica")
+@RestController
+@RequiredArgsConstructor
+public class ReplicaStatusController { // replica 헬스 체크/복제 지연 조회용
+
+    private final ReplicaMonitor replicaMonitor;
+
+    @GetMapping("/replicas")
+    public List<ReplicaStatus> replicas(){
+        return replicaMonitor.status();
+    }
+
+}
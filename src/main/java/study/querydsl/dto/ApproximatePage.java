@@ -0,0 +1,26 @@
+package study.querydsl.dto;
+
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * [전체 카운트]가 근사값일 수 있는 Page (searchPageParallel)
+ * -> count 쿼리가 제한 시간 안에 끝나지 않으면 "적어도 이만큼은 있다"는 값으로 대신 응답한다.
+ * -> 응답 JSON의 totalApproximate가 true이면 totalElements, totalPages는 정확한 값이 아니다.
+ */
+public class ApproximatePage<T> extends PageImpl<T> {
+
+    private final boolean totalApproximate;
+
+    public ApproximatePage(List<T> content, Pageable pageable, long total, boolean totalApproximate) {
+        super(content, pageable, total);
+        this.totalApproximate = totalApproximate;
+    }
+
+    public boolean isTotalApproximate() {
+        return totalApproximate;
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data // 청크 단위 벌크 연산 결과
+public class BulkResult {
+
+    private List<Chunk> chunks;
+    private long affected; // 전체 변경 row 수
+    private long elapsedMillis;
+
+    public BulkResult(List<Chunk> chunks, long elapsedMillis) {
+
+        this.chunks = chunks;
+        this.affected = chunks.stream().mapToLong(Chunk::getAffected).sum();
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Data // member.id 구간 [fromId, toId] 1개 = 트랜잭션 1개
+    public static class Chunk {
+
+        private long fromId;
+        private long toId;
+        private long affected;
+        private long elapsedMillis;
+
+        public Chunk(long fromId, long toId, long affected, long elapsedMillis) {
+
+            this.fromId = fromId;
+            this.toId = toId;
+            this.affected = affected;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+}
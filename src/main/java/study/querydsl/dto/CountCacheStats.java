@@ -0,0 +1,34 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+@Data // [전체 카운트] 캐시의 적중률 확인용
+public class CountCacheStats {
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private int size;
+
+    // peek() : count 쿼리 없이 캐시만 확인한 횟수 (hits, misses에는 포함하지 않는다)
+    private long peekHits;
+    private long peekMisses;
+
+    public CountCacheStats(long hits, long misses, long evictions, int size, long peekHits, long peekMisses) {
+
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.peekHits = peekHits;
+        this.peekMisses = peekMisses;
+    }
+
+    // getOrCompute() 기준 적중률
+    public double getHitRatio(){
+
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
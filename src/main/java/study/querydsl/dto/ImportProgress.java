@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+@Data // 대량 등록 진행 상황 : batch 1개가 커밋될 때마다 1건
+public class ImportProgress {
+
+    private long batch;
+    private int inserted; // 이번 batch에서 넣은 회원 수
+    private long totalInserted;
+    private long rejected; // 지금까지 형식이 잘못되어 건너뛴 줄 수
+    private long elapsedMillis;
+
+    public ImportProgress(long batch, int inserted, long totalInserted, long rejected, long elapsedMillis) {
+
+        this.batch = batch;
+        this.inserted = inserted;
+        this.totalInserted = totalInserted;
+        this.rejected = rejected;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
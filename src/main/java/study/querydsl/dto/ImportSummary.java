@@ -0,0 +1,27 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+@Data // 대량 등록 결과
+public class ImportSummary {
+
+    private long batches;
+    private long inserted;
+    private long rejected;
+    private long teamsCreated;
+    private long elapsedMillis;
+
+    public ImportSummary(long batches, long inserted, long rejected, long teamsCreated, long elapsedMillis) {
+
+        this.batches = batches;
+        this.inserted = inserted;
+        this.rejected = rejected;
+        this.teamsCreated = teamsCreated;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond(){
+        return elapsedMillis == 0 ? inserted : inserted * 1000.0 / elapsedMillis;
+    }
+}
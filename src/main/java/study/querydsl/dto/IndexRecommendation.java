@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data // 인덱스 추천 결과 : 어떤 검색 조건 조합이 얼마나 들어왔는지를 근거로 만든다.(MemberSearchIndexAdvisor)
+public class IndexRecommendation {
+
+    private String table;
+    private List<String> columns;
+    private long searches; // 이 인덱스를 사용할 수 있는 검색 횟수
+    private String ddl;
+
+    public IndexRecommendation(String table, List<String> columns, long searches) {
+
+        this.table = table;
+        this.columns = columns;
+        this.searches = searches;
+        this.ddl = "create index if not exists idx_" + table + "_" + String.join("_", columns)
+                + " on " + table + " (" + String.join(", ", columns) + ");";
+    }
+}
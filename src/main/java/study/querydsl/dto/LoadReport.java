@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+@Data // 대량 적재 결과
+public class LoadReport {
+
+    private long teams;
+    private long members;
+    private long elapsedMillis;
+
+    public LoadReport(long teams, long members, long elapsedMillis) {
+
+        this.teams = teams;
+        this.members = members;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond(){
+        return elapsedMillis == 0 ? members : members * 1000.0 / elapsedMillis;
+    }
+}
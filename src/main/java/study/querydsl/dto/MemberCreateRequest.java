@@ -0,0 +1,13 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+@Data // 회원 가입 요청
+public class MemberCreateRequest {
+
+    private String username;
+    private int age;
+    private Long teamId; // 팀이 없으면 null
+
+}
@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data // 커서(keyset) 기반 조회 결과 : 다음 페이지를 요청할 때에는 nextCursor를 그대로 넘겨주면 된다.
+public class MemberCursorSlice {
+
+    private List<MemberTeamDto> content;
+    private String nextCursor; // 다음 페이지가 없으면 null
+    private boolean hasNext;
+
+    public MemberCursorSlice(List<MemberTeamDto> content, String nextCursor, boolean hasNext) {
+
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+}
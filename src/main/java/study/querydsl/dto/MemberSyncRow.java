@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data // 외부 시스템에서 넘어온 회원 1명 (username 기준으로 upsert)
+@NoArgsConstructor
+public class MemberSyncRow {
+
+    private String username;
+    private int age;
+    private Long teamId; // 팀이 없으면 null
+
+    public MemberSyncRow(String username, int age, Long teamId) {
+
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+    }
+}
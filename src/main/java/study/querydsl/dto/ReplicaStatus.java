@@ -0,0 +1,27 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data // replica 별 헬스 체크/복제 지연 확인용 (ReplicaMonitor)
+public class ReplicaStatus {
+
+    private String name;
+    private boolean healthy;
+    private boolean available; // 정상 + 지연이 max-lag 이하 -> 읽기 전용 쿼리를 받는다.
+    private Long lagMillis;
+    private String error;
+    private Instant checkedAt;
+
+    public ReplicaStatus(String name, boolean healthy, boolean available, Long lagMillis, String error, Instant checkedAt) {
+
+        this.name = name;
+        this.healthy = healthy;
+        this.available = available;
+        this.lagMillis = lagMillis;
+        this.error = error;
+        this.checkedAt = checkedAt;
+    }
+}
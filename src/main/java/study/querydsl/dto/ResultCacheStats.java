@@ -0,0 +1,33 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+@Data // 검색 결과 캐시의 적중률, 메모리 사용량 확인용
+public class ResultCacheStats {
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private int size;
+    private long weightBytes; // 대략의 메모리 사용량
+    private long maxWeightBytes;
+
+    public ResultCacheStats(long hits, long misses, long evictions, long invalidations, int size, long weightBytes, long maxWeightBytes) {
+
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.weightBytes = weightBytes;
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    public double getHitRatio(){
+
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+@Data // 2차 캐시 region 별 적중률 확인용
+public class SecondLevelCacheStats {
+
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long size;
+
+    public SecondLevelCacheStats(String region, long hits, long misses, long puts, long size) {
+
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.size = size;
+    }
+
+    public double getHitRatio(){
+
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.dto;
+
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+@Data // 팀별 통계 (TeamStatsRepository)
+public class TeamStatsDto {
+
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private double avgAge;
+    private int maxAge;
+
+    @QueryProjection // 회원이 없는 팀은 통계 row가 없으므로 null이 넘어온다.
+    public TeamStatsDto(Long teamId, String teamName, Long memberCount, Long ageSum, Integer maxAge) {
+
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount == null ? 0 : memberCount;
+        this.avgAge = this.memberCount == 0 ? 0 : (double) ageSum / this.memberCount;
+        this.maxAge = this.memberCount == 0 || maxAge == null ? 0 : maxAge;
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+
+import lombok.Data;
+
+@Data // upsert 결과
+public class UpsertResult {
+
+    private long batches;
+    private long inserted;
+    private long updated;
+    private long elapsedMillis;
+
+    public UpsertResult(long batches, long inserted, long updated, long elapsedMillis) {
+
+        this.batches = batches;
+        this.inserted = inserted;
+        this.updated = updated;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -3,14 +3,25 @@ package study.querydsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import study.querydsl.config.SecondLevelCacheConfig;
+import study.querydsl.repository.MemberCountCacheInvalidator;
+import study.querydsl.repository.MemberSearchResultInvalidator;
+import study.querydsl.repository.TeamStatsListener;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.MEMBER) // 2차 캐시 : findById()
+@EntityListeners({MemberCountCacheInvalidator.class, TeamStatsListener.class, MemberSearchResultInvalidator.class}) // 변경 시 캐시 무효화, 팀별 통계 갱신
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Getter@Setter
 @ToString(of={"id","username","age"}) // 여기에다가 "team"을 넣으면, 무한루프 일어남!!!(모르겠으면, 게시물 참조)
 public class Member {                 // 연관 관계 필드들은 안 넣어야 한다.
 
-    @Id@GeneratedValue
+    // pooled 옵티마이저 : 시퀀스를 1번 호출할 때 allocationSize 만큼의 id를 미리 확보 -> insert 마다 시퀀스를 호출하지 않는다.
+    @Id@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 100)
     @Column(name = "member_id")
     private Long id;
 
@@ -22,6 +33,17 @@ public class Member {                 // 연관 관계 필드들은 안 넣어
     @JoinColumn(name = "team_id")
     private Team team;
 
+    // 마지막으로 DB와 맞춰진 (username, 팀, 나이) : 엔티티 리스너가 변경 전 값을 알기 위해 사용 (컬럼 아님)
+    // -> TeamStatsListener, MemberSearchResultInvalidator
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private String syncedUsername;
+
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private Team syncedTeam; // 프록시일 수 있다.(초기화하지 않는다)
+
+    @Transient @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private Integer syncedAge; // null이면 아직 DB에 없는 회원
+
     public Member(String username){
 
         this.username=username;
@@ -53,9 +75,59 @@ public class Member {                 // 연관 관계 필드들은 안 넣어
     // 양뱡향 관계 편의 메서드
     public void changeTeam(Team team) {
 
-        this.team = team;
-        team.getMembers().add(this);
+        Team oldTeam = this.team;
+        this.team = team; // 연관 관계의 주인(FK)은 Member.team
+
+        /**
+         * Team.members(역방향 컬렉션)를 맞추려고 팀의 회원 전체를 로딩하지 않는다.
+         * 1. getReference()로 얻은 프록시 팀이라면 팀 자체도 초기화하지 않는다.(나중에 필요할 때 DB에서 로딩)
+         * 2. 로딩된 팀이라면, members가 지연 로딩 상태여도 inverse bag(mappedBy List)의 add()는
+         *    컬렉션을 초기화하지 않고 큐에 쌓아 뒀다가, 초기화될 때 반영한다.
+         * 3. remove()는 컬렉션을 초기화하므로, 이미 로딩된 컬렉션에서만 뺀다.
+         */
+        if(oldTeam != null && oldTeam != team
+                && Hibernate.isInitialized(oldTeam) && Hibernate.isInitialized(oldTeam.getMembers())){
+            oldTeam.getMembers().remove(this);
+        }
+
+        if(Hibernate.isInitialized(team)){
+            team.getMembers().add(this);
+        }
+
+    }
+
+    // 팀 프록시는 id만 꺼내므로 초기화되지 않는다.
+    public Long getTeamId(){
+        return team == null ? null : team.getId();
+    }
+
+    public String syncedUsername(){
+        return syncedUsername;
+    }
+
+    public Team syncedTeam(){
+        return syncedTeam;
+    }
+
+    public Long syncedTeamId(){
+        return syncedTeam == null ? null : syncedTeam.getId();
+    }
+
+    public Integer syncedAge(){
+        return syncedAge;
+    }
 
+    /**
+     * 엔티티 자신의 콜백은 @EntityListeners의 리스너들이 모두 호출된 다음에 호출된다.
+     * -> 리스너들은 변경 전 값(synced~)을 읽을 수 있고, 그 다음에 여기서 현재 값으로 맞춘다.
+     */
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    protected void markSynced(){
+        this.syncedUsername = username;
+        this.syncedTeam = team;
+        this.syncedAge = age;
     }
 
 
@@ -3,22 +3,32 @@ package study.querydsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import study.querydsl.config.SecondLevelCacheConfig;
+import study.querydsl.repository.MemberCountCacheInvalidator;
+import study.querydsl.repository.MemberSearchResultInvalidator;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.TEAM) // 2차 캐시 : 작고 거의 바뀌지 않는다.
+@EntityListeners({MemberCountCacheInvalidator.class, MemberSearchResultInvalidator.class}) // 변경 시 캐시 무효화
 @Getter@Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of={"id","name"})
 public class Team {
 
-    @Id@GeneratedValue
+    // Member와 같은 pooled 시퀀스 전략
+    @Id@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 100)
     @Column(name ="team_id")
     private Long id;
 
     private String name;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.TEAM_MEMBERS) // 회원 id 목록만 캐시
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
@@ -0,0 +1,36 @@
+package study.querydsl.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 팀별 집계(회원 수, 나이 합, 최대 나이)를 미리 계산해 둔 테이블
+ * -> 회원이 추가/수정/삭제되면 TeamStatsListener가 트랜잭션 커밋 직전에 해당 팀의 row만 증분 갱신한다.
+ * -> 대시보드에서 팀별 통계를 볼 때 회원 전체를 GROUP BY 하지 않고, 팀 수만큼만 읽는다.
+ *
+ * 갱신은 JDBC(TeamStatsMaintainer)로만 하므로, 이 엔티티는 조회(QTeamStats)와 DDL 생성용이다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+    @Id
+    @Column(name = "team_id") // Team과 연관 관계를 걸지 않는다.(팀 insert가 JDBC batch에 남아 있어도 먼저 갱신할 수 있도록)
+    private Long teamId;
+
+    private long memberCount;
+    private long ageSum; // 평균 = ageSum / memberCount
+    private int maxAge;
+
+    // 최대 나이인 회원이 빠져 나갔을 수 있음 -> 커밋 전에 그 팀만 다시 계산한다.(최대값은 빼기로 갱신할 수 없다)
+    private boolean maxStale;
+
+}
@@ -0,0 +1,9 @@
+package study.querydsl.loader;
+
+public enum AgeDistribution {
+
+    UNIFORM, // min ~ max 균등
+    NORMAL,  // 평균 mean, 표준편차 stddev (min ~ max 밖은 잘라 낸다)
+    SKEWED   // 젊은 나이에 몰린 분포 (min 쪽으로 지수적으로 치우침)
+
+}
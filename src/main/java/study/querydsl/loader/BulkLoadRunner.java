@@ -0,0 +1,28 @@
+package study.querydsl.loader;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+@Profile("bulk") // 대량 데이터로 띄울 때 : --spring.profiles.active=bulk (InitMember 대신 동작)
+@Component
+@RequiredArgsConstructor
+public class BulkLoadRunner implements ApplicationRunner {
+
+    private final MemberBulkLoader loader;
+
+    @Value("${loader.teams:100}")
+    private int teams;
+
+    @Value("${loader.members:1000000}")
+    private long members;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        loader.load(teams, members);
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.loader;
+
+
+import lombok.Data;
+
+@Data // 합성 데이터셋 설정 (SyntheticMemberGenerator)
+public class DatasetSpec {
+
+    private int teams = 100;
+    private int membersPerTeam = 1000; // 평균 : 전체 회원 수 = teams * membersPerTeam
+
+    private double zipfExponent = 1.0; // 0이면 팀 크기가 모두 같고, 클수록 앞쪽 팀에 회원이 몰린다.
+
+    private AgeDistribution ageDistribution = AgeDistribution.UNIFORM;
+    private int ageMin = 0;
+    private int ageMax = 99;
+    private double ageMean = 35;
+    private double ageStddev = 12;
+
+    private long usernameCardinality = 0; // 서로 다른 username 개수 (0이면 모두 다름)
+
+    private long seed = 42;
+
+    public long getMemberCount(){
+        return (long) teams * membersPerTeam;
+    }
+}
@@ -0,0 +1,8 @@
+package study.querydsl.loader;
+
+// 대량 등록 파일 형식
+public enum ImportFormat {
+
+    CSV,   // username,age,teamName (첫 줄이 헤더라면 건너뜀)
+    NDJSON // 한 줄에 {"username":..., "age":..., "teamName":...} 1개
+}
@@ -0,0 +1,136 @@
+package study.querydsl.loader;
+
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.LoadReport;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.TeamStatsMaintainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 대량의 Team, Member를 빠르게 넣는 로더 (InitMember처럼 1건씩 persist 하면 천만 건은 너무 느리다)
+ *
+ * 1. hibernate.jdbc.batch_size + order_inserts : insert를 모아서 JDBC batch로 보낸다.
+ * 2. pooled 시퀀스(allocationSize) : id를 얻으려고 매번 시퀀스를 호출하지 않는다.
+ * 3. flushSize 마다 flush() + clear() : 영속성 컨텍스트에 엔티티가 계속 쌓이지 않는다.
+ * 4. chunkSize 단위로 나눠서 여러 쓰레드가 각자의 트랜잭션(커넥션)으로 동시에 넣는다.
+ * 5. 회원마다 TeamStats를 갱신하지 않고, 다 넣은 뒤에 한 번에 집계한다.
+ */
+@Slf4j
+@Component
+public class MemberBulkLoader {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final TeamStatsMaintainer teamStats;
+
+    private final int flushSize;
+    private final int chunkSize;
+    private final int threads;
+
+    public MemberBulkLoader(EntityManager em,
+                            PlatformTransactionManager transactionManager,
+                            TeamStatsMaintainer teamStats,
+                            @Value("${loader.flush-size:1000}") int flushSize,
+                            @Value("${loader.chunk-size:100000}") int chunkSize,
+                            @Value("${loader.threads:4}") int threads){
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.teamStats = teamStats;
+        this.flushSize = flushSize;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    // 회원 i는 (i % teamCount)번째 팀, 나이는 i % 100
+    public LoadReport load(int teamCount, long memberCount){
+
+        return load(teamCount, memberCount, (i, team) -> {
+            Member member = new Member("member" + i, (int) (i % 100));
+            member.setTeam(team.apply((int) (i % teamCount)));
+            return member;
+        });
+    }
+
+    // 회원 i는 generator.generate(i, ..)로 만든다.(SyntheticMemberGenerator 등)
+    public LoadReport load(int teamCount, long memberCount, MemberRowGenerator generator){
+
+        long start = System.currentTimeMillis();
+
+        List<Long> teamIds = transactionTemplate.execute(status -> insertTeams(teamCount));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for(long from = 0; from < memberCount; from += chunkSize){
+                long chunkStart = from;
+                long chunkEnd = Math.min(memberCount, from + chunkSize);
+                chunks.add(executor.submit(() -> teamStats.suspended(() -> transactionTemplate.execute(status -> {
+                    insertMembers(teamIds, generator, chunkStart, chunkEnd);
+                    return null;
+                }))));
+            }
+
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("대량 적재 도중 인터럽트 되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("대량 적재에 실패했습니다.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> teamStats.rebuild());
+
+        LoadReport report = new LoadReport(teamCount, memberCount, System.currentTimeMillis() - start);
+        log.info("대량 적재 완료 : team = {}, member = {}, {} ms, {} rows/sec",
+                report.getTeams(), report.getMembers(), report.getElapsedMillis(), String.format("%.0f", report.getRowsPerSecond()));
+        return report;
+    }
+
+    private List<Long> insertTeams(int teamCount){
+
+        List<Long> teamIds = new ArrayList<>(teamCount);
+        for(int i = 0; i < teamCount; i++){
+            Team team = new Team("team" + i);
+            em.persist(team);
+            teamIds.add(team.getId());
+
+            if((i + 1) % flushSize == 0){
+                em.flush();
+                em.clear();
+            }
+        }
+        return teamIds;
+    }
+
+    private void insertMembers(List<Long> teamIds, MemberRowGenerator generator, long from, long to){
+
+        for(long i = from; i < to; i++){
+
+            // getReference() : 팀을 조회하지 않고 id만 가진 프록시로 FK만 설정한다.(Team.members도 건드리지 않음)
+            Member member = generator.generate(i, k -> em.getReference(Team.class, teamIds.get(k)));
+            em.persist(member);
+
+            if((i - from + 1) % flushSize == 0){
+                em.flush();
+                em.clear();
+            }
+        }
+    }
+}
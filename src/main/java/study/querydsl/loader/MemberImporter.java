@@ -0,0 +1,207 @@
+package study.querydsl.loader;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.ImportProgress;
+import study.querydsl.dto.ImportSummary;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * CSV/NDJSON 스트림을 읽으면서 회원을 batchSize 단위로 등록한다.
+ *
+ * -> 파일 전체를 메모리에 올리지 않고, batch 1개 분량만 들고 있는다.
+ * -> batch를 커밋하기 전까지는 다음 줄을 읽지 않는다.(요청 스트림을 읽는 속도 = DB에 쓰는 속도 : backpressure)
+ * -> 팀 이름은 로컬 캐시(팀 이름 -> id)로 찾고, 없는 팀은 새로 만든다. 회원에는 getReference()로 FK만 설정한다.
+ * -> 없는 팀은 회원 batch보다 먼저 자기 트랜잭션으로 만들고, 커밋된 다음에만 로컬 캐시에 넣는다.
+ *    (회원 batch가 롤백되어도 로컬 캐시에 DB에 없는 팀 id가 남지 않는다)
+ */
+@Slf4j
+@Component
+public class MemberImporter {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public MemberImporter(EntityManager em,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper,
+                          @Value("${loader.import-batch-size:1000}") int batchSize){
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public ImportSummary importMembers(InputStream in, ImportFormat format, Consumer<ImportProgress> progress) throws IOException {
+
+        long start = System.currentTimeMillis();
+        Map<String, Long> teamIds = loadTeamIds();
+        int teamsBefore = teamIds.size();
+
+        long batches = 0;
+        long inserted = 0;
+        long rejected = 0;
+        List<Row> buffer = new ArrayList<>(batchSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        boolean firstLine = true;
+
+        while ((line = reader.readLine()) != null) {
+
+            if (!StringUtils.hasText(line)) {
+                continue;
+            }
+            if (firstLine && format == ImportFormat.CSV && line.startsWith("username")) {
+                firstLine = false;
+                continue; // 헤더
+            }
+            firstLine = false;
+
+            Row row = parse(line, format);
+            if (row == null) {
+                rejected++;
+                continue;
+            }
+
+            buffer.add(row);
+            if (buffer.size() == batchSize) {
+                inserted += insertBatch(buffer, teamIds);
+                progress.accept(new ImportProgress(++batches, buffer.size(), inserted, rejected, System.currentTimeMillis() - start));
+                buffer.clear();
+            }
+        }
+
+        if (!buffer.isEmpty()) {
+            inserted += insertBatch(buffer, teamIds);
+            progress.accept(new ImportProgress(++batches, buffer.size(), inserted, rejected, System.currentTimeMillis() - start));
+        }
+
+        ImportSummary summary = new ImportSummary(batches, inserted, rejected, teamIds.size() - teamsBefore, System.currentTimeMillis() - start);
+        log.info("회원 대량 등록 완료 : {} 건, 건너뜀 {} 건, {} rows/sec", summary.getInserted(), summary.getRejected(),
+                String.format("%.0f", summary.getRowsPerSecond()));
+        return summary;
+    }
+
+    // batch 1개 = 트랜잭션 1개
+    private int insertBatch(List<Row> rows, Map<String, Long> teamIds) {
+
+        createMissingTeams(rows, teamIds);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Row row : rows) {
+                Member member = new Member(row.username, row.age);
+                if (row.teamName != null) {
+                    member.setTeam(em.getReference(Team.class, teamIds.get(row.teamName)));
+                }
+                em.persist(member);
+            }
+            em.flush();
+            em.clear();
+        });
+        return rows.size();
+    }
+
+    // batch에 처음 나온 팀들을 만들고, 커밋이 끝난 다음에 teamIds에 넣는다.
+    private void createMissingTeams(List<Row> rows, Map<String, Long> teamIds) {
+
+        Set<String> missing = new LinkedHashSet<>();
+        for (Row row : rows) {
+            if (row.teamName != null && !teamIds.containsKey(row.teamName)) {
+                missing.add(row.teamName);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> created = transactionTemplate.execute(status -> {
+            Map<String, Long> ids = new HashMap<>();
+            for (String teamName : missing) {
+                Team newTeam = new Team(teamName);
+                em.persist(newTeam);
+                ids.put(teamName, newTeam.getId());
+            }
+            return ids;
+        });
+        teamIds.putAll(created);
+    }
+
+    // 팀은 수가 적으므로 처음에 한 번만 전부 읽어 둔다.
+    private Map<String, Long> loadTeamIds() {
+
+        Map<String, Long> teamIds = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status ->
+                queryFactory
+                        .select(team.name, team.id)
+                        .from(team)
+                        .fetch()
+                        .forEach(tuple -> teamIds.putIfAbsent(tuple.get(team.name), tuple.get(team.id))));
+        return teamIds;
+    }
+
+    // 형식이 잘못된 줄은 null
+    private Row parse(String line, ImportFormat format) {
+
+        try {
+            if (format == ImportFormat.NDJSON) {
+                JsonNode node = objectMapper.readTree(line);
+                String username = node.path("username").asText(null);
+                String teamName = node.path("teamName").asText(null);
+                return username == null || !node.path("age").canConvertToInt() ? null
+                        : new Row(username, node.path("age").asInt(), StringUtils.hasText(teamName) ? teamName : null);
+            }
+
+            String[] columns = line.split(",", -1);
+            if (columns.length < 2) {
+                return null;
+            }
+            String teamName = columns.length > 2 ? columns[2].trim() : "";
+            return new Row(columns[0].trim(), Integer.parseInt(columns[1].trim()), teamName.isEmpty() ? null : teamName);
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static class Row {
+
+        private final String username;
+        private final int age;
+        private final String teamName;
+
+        Row(String username, int age, String teamName) {
+            this.username = username;
+            this.age = age;
+            this.teamName = teamName;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.loader;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.function.IntFunction;
+
+
+// MemberBulkLoader가 index번째 회원을 만들 때 사용 : 여러 쓰레드에서 동시에 호출되므로 상태를 가지면 안 된다.
+@FunctionalInterface
+public interface MemberRowGenerator {
+
+    // team.apply(k) : k번째 팀(0 ~ teamCount - 1)의 프록시
+    Member generate(long index, IntFunction<Team> team);
+
+}
@@ -0,0 +1,68 @@
+package study.querydsl.loader;
+
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Profile("generate") // 운영과 비슷한 모양의 데이터로 띄울 때 : --spring.profiles.active=generate (InitMember 대신 동작)
+@Component
+@RequiredArgsConstructor
+public class SyntheticDatasetRunner implements ApplicationRunner {
+
+    private final MemberBulkLoader loader;
+
+    @Value("${generator.teams:100}")
+    private int teams;
+
+    @Value("${generator.members-per-team:1000}")
+    private int membersPerTeam;
+
+    @Value("${generator.zipf-exponent:1.0}")
+    private double zipfExponent;
+
+    @Value("${generator.age.distribution:UNIFORM}")
+    private AgeDistribution ageDistribution;
+
+    @Value("${generator.age.min:0}")
+    private int ageMin;
+
+    @Value("${generator.age.max:99}")
+    private int ageMax;
+
+    @Value("${generator.age.mean:35}")
+    private double ageMean;
+
+    @Value("${generator.age.stddev:12}")
+    private double ageStddev;
+
+    @Value("${generator.username-cardinality:0}")
+    private long usernameCardinality;
+
+    @Value("${generator.seed:42}")
+    private long seed;
+
+    @Override
+    public void run(ApplicationArguments args) {
+
+        DatasetSpec spec = new DatasetSpec();
+        spec.setTeams(teams);
+        spec.setMembersPerTeam(membersPerTeam);
+        spec.setZipfExponent(zipfExponent);
+        spec.setAgeDistribution(ageDistribution);
+        spec.setAgeMin(ageMin);
+        spec.setAgeMax(ageMax);
+        spec.setAgeMean(ageMean);
+        spec.setAgeStddev(ageStddev);
+        spec.setUsernameCardinality(usernameCardinality);
+        spec.setSeed(seed);
+
+        log.info("합성 데이터셋 생성 : {}", spec);
+        loader.load(spec.getTeams(), spec.getMemberCount(), new SyntheticMemberGenerator(spec));
+    }
+}
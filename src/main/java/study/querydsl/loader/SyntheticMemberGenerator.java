@@ -0,0 +1,86 @@
+package study.querydsl.loader;
+
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+
+/**
+ * 운영 데이터와 비슷한 모양의 합성 회원 생성기
+ *
+ * 1. 팀 크기 : Zipf 분포 (k번째 팀의 비중 = 1 / (k + 1)^zipfExponent)
+ * 2. 나이 : AgeDistribution
+ * 3. username : usernameCardinality 개 중 하나 (중복 username으로 검색 선택도를 조절)
+ *
+ * index번째 회원은 (seed, index)만으로 결정된다.
+ * -> 어느 쓰레드가 어떤 순서로 만들든 같은 seed면 항상 같은 데이터셋이 나온다.
+ */
+public class SyntheticMemberGenerator implements MemberRowGenerator {
+
+    private final DatasetSpec spec;
+    private final double[] teamCdf; // 팀 선택용 누적 분포
+
+    public SyntheticMemberGenerator(DatasetSpec spec){
+
+        if(spec.getTeams() <= 0 || spec.getAgeMin() > spec.getAgeMax()){
+            throw new IllegalArgumentException("잘못된 데이터셋 설정입니다 : " + spec);
+        }
+        this.spec = spec;
+        this.teamCdf = zipfCdf(spec.getTeams(), spec.getZipfExponent());
+    }
+
+    @Override
+    public Member generate(long index, IntFunction<Team> team) {
+
+        SplittableRandom random = new SplittableRandom(spec.getSeed() * 0x9E3779B97F4A7C15L + index);
+
+        Member member = new Member(username(index, random), age(random));
+        member.setTeam(team.apply(teamIndex(random.nextDouble())));
+        return member;
+    }
+
+    int teamIndex(double u){
+
+        int found = Arrays.binarySearch(teamCdf, u);
+        int index = found >= 0 ? found + 1 : -found - 1; // u보다 큰 첫 번째 누적값의 위치
+        return Math.min(index, teamCdf.length - 1);
+    }
+
+    private String username(long index, SplittableRandom random){
+
+        if(spec.getUsernameCardinality() <= 0){
+            return "member" + index;
+        }
+        return "member" + random.nextLong(spec.getUsernameCardinality());
+    }
+
+    private int age(SplittableRandom random){
+
+        int min = spec.getAgeMin();
+        int max = spec.getAgeMax();
+
+        double age = switch (spec.getAgeDistribution()) {
+            case UNIFORM -> min + random.nextInt(max - min + 1);
+            case NORMAL -> spec.getAgeMean() + random.nextGaussian() * spec.getAgeStddev();
+            case SKEWED -> min + random.nextExponential() * spec.getAgeStddev();
+        };
+        return (int) Math.max(min, Math.min(max, Math.round(age)));
+    }
+
+    private static double[] zipfCdf(int teams, double exponent){
+
+        double[] cdf = new double[teams];
+        double sum = 0;
+        for(int k = 0; k < teams; k++){
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for(int k = 0; k < teams; k++){
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.repository;
+
+/**
+ * 클라이언트가 보낸 페이징 파라미터(커서, size, 정렬)가 잘못된 경우 (MemberController에서 400으로 응답)
+ * -> 그 외의 IllegalArgumentException은 프로그래밍 오류이므로 400으로 바꾸지 않는다.
+ */
+public class InvalidPageRequestException extends IllegalArgumentException {
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidPageRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,275 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.BulkResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 청크 단위 벌크 update/delete
+ *
+ * update(member).set(...).where(...).execute() 1번으로 수백만 row를 바꾸면, 그 동안 lock을 오래 잡고 undo log도 커진다.
+ * -> where 조건을 member.id 구간(chunkSize) 별로 나눠서, 구간 1개를 짧은 트랜잭션 1개로 실행한다.(parallel 이면 동시에)
+ *
+ * 벌크 연산은 영속성 컨텍스트를 거치지 않고 DB에 바로 날라가므로(QuerydslBasicTest.bulkUpdate 참조)
+ * -> 실행 전에 flush() : 아직 DB에 반영되지 않은 변경 내용을 먼저 반영
+ * -> 실행 후에 clear() : 벌크 연산이 반영되지 않은 [기존] 엔티티가 조회되지 않도록
+ * -> 엔티티 리스너도 호출되지 않으므로, [전체 카운트]/검색 결과 캐시는 직접 비우고 TeamStats는 다시 집계한다.
+ *    TeamStats는 전체가 아니라 청크마다 모은 [회원이 빠지거나 들어간 팀]만 다시 집계한다.(TeamStatsMaintainer.refresh)
+ *    -> 걸린 회원이 없거나, update가 나이/팀을 바꾸지 않으면 다시 집계하지 않는다.
+ *
+ * 주의) 이미 트랜잭션 안에서 호출되면, 새 트랜잭션은 현재 트랜잭션의 커밋되지 않은 변경을 볼 수 없고 lock을 기다리게 된다.
+ *      -> 이 경우에는 현재 트랜잭션 안에서 청크를 순서대로 실행한다.
+ */
+@Repository
+public class MemberBulkOperations {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate chunkTransaction;
+    private final AsyncTaskExecutor executor;
+    private final MemberCountCache countCache;
+    private final TeamStatsMaintainer teamStats;
+    private final MemberSearchResultCache resultCache;
+
+    public MemberBulkOperations(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("memberBulkExecutor") AsyncTaskExecutor executor,
+                                MemberCountCache countCache,
+                                TeamStatsMaintainer teamStats,
+                                MemberSearchResultCache resultCache){
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = executor;
+        this.countCache = countCache;
+        this.teamStats = teamStats;
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * @param where   member만 사용하는 조건(벌크 JPQL은 join 불가) : 예) member.age.lt(28)
+     * @param changes 청크마다 적용할 set 절 : 예) clause -> clause.set(member.username, "비회원")
+     */
+    public BulkResult update(Predicate where, Consumer<JPAUpdateClause> changes, int chunkSize, boolean parallel){
+
+        boolean statsChanged = changesTeamStats(changes);
+        Set<Long> touchedTeamIds = ConcurrentHashMap.newKeySet();
+
+        return execute(where, chunkSize, parallel, touchedTeamIds, (fromId) -> {
+            Predicate inChunk = member.id.between(fromId, fromId + chunkSize - 1);
+
+            // 바뀌기 전의 팀 (회원 id는 update 후에 옮겨 간 팀을 찾는 데 쓴다. 조건(where)은 update 후에 안 걸릴 수 있다)
+            List<Long> memberIds = new ArrayList<>();
+            if(statsChanged){
+                for (Tuple tuple : queryFactory.select(member.id, member.team.id).from(member).where(where, inChunk).fetch()) {
+                    memberIds.add(tuple.get(member.id));
+                    addTeamId(touchedTeamIds, tuple.get(member.team.id));
+                }
+            }
+
+            JPAUpdateClause clause = queryFactory
+                    .update(member)
+                    .where(where, inChunk);
+            changes.accept(clause);
+            long affected = clause.execute();
+
+            if(!memberIds.isEmpty()){ // 옮겨 간 팀
+                queryFactory.select(member.team.id).distinct().from(member).where(member.id.in(memberIds)).fetch()
+                        .forEach(teamId -> addTeamId(touchedTeamIds, teamId));
+            }
+            return affected;
+        });
+    }
+
+    public BulkResult delete(Predicate where, int chunkSize, boolean parallel){
+
+        Set<Long> touchedTeamIds = ConcurrentHashMap.newKeySet();
+
+        return execute(where, chunkSize, parallel, touchedTeamIds, (fromId) -> {
+            Predicate inChunk = member.id.between(fromId, fromId + chunkSize - 1);
+
+            queryFactory.select(member.team.id).distinct().from(member).where(where, inChunk).fetch()
+                    .forEach(teamId -> addTeamId(touchedTeamIds, teamId));
+
+            return queryFactory
+                    .delete(member)
+                    .where(where, inChunk)
+                    .execute();
+        });
+    }
+
+    /**
+     * chunk : 구간 시작 id -> 변경된 row 수
+     * touchedTeamIds : 청크마다 모은 [회원이 빠지거나 들어간 팀] -> 끝나면 이 팀들만 다시 집계한다.
+     */
+    private BulkResult execute(Predicate where, int chunkSize, boolean parallel, Set<Long> touchedTeamIds, LongUnaryOperator chunk){
+
+        if(chunkSize <= 0){
+            throw new IllegalArgumentException("chunkSize는 1 이상이어야 합니다. chunkSize = " + chunkSize);
+        }
+
+        long start = System.currentTimeMillis();
+        boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+
+        if(inTransaction){
+            em.flush();
+            em.clear();
+        }
+
+        Tuple range = queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .where(where)
+                .fetchOne();
+
+        List<BulkResult.Chunk> results = new ArrayList<>();
+        Long minId = range == null ? null : range.get(member.id.min());
+        Long maxId = range == null ? null : range.get(member.id.max());
+
+        try {
+            if(minId != null){
+                if(inTransaction){
+                    for(long fromId = minId; fromId <= maxId; fromId += chunkSize){
+                        results.add(runChunk(chunk, fromId, chunkSize));
+                    }
+                } else {
+                    results.addAll(runChunksInNewTransactions(chunk, minId, maxId, chunkSize, parallel));
+                }
+            }
+        } finally {
+            if(inTransaction){
+                em.clear(); // 벌크 연산이 반영되지 않은 엔티티가 남지 않도록
+            }
+            if(!touchedTeamIds.isEmpty()){ // 실패한 청크의 팀이 들어 있어도, 다시 집계하는 것이므로 결과는 맞다.
+                if(inTransaction){
+                    teamStats.refresh(touchedTeamIds);
+                } else {
+                    chunkTransaction.executeWithoutResult(status -> teamStats.refresh(touchedTeamIds));
+                }
+            }
+            if(minId != null){
+                countCache.invalidateAll();
+                resultCache.invalidateAll();
+            }
+        }
+
+        return new BulkResult(results, System.currentTimeMillis() - start);
+    }
+
+    private List<BulkResult.Chunk> runChunksInNewTransactions(LongUnaryOperator chunk, long minId, long maxId, int chunkSize, boolean parallel){
+
+        List<BulkResult.Chunk> results = new ArrayList<>();
+
+        if(!parallel){
+            for(long fromId = minId; fromId <= maxId; fromId += chunkSize){
+                long chunkStart = fromId;
+                results.add(chunkTransaction.execute(status -> runChunk(chunk, chunkStart, chunkSize)));
+            }
+            return results;
+        }
+
+        List<Future<BulkResult.Chunk>> futures = new ArrayList<>();
+        for(long fromId = minId; fromId <= maxId; fromId += chunkSize){
+            long chunkStart = fromId;
+            futures.add(executor.submit(() -> chunkTransaction.execute(status -> runChunk(chunk, chunkStart, chunkSize))));
+        }
+
+        try {
+            for (Future<BulkResult.Chunk> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("벌크 연산 도중 인터럽트 되었습니다.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true)); // 이미 커밋된 청크는 되돌리지 않는다.
+            if(e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    // set 절에 나이나 팀이 있는지 : 실행하지 않는 update 절에 changes를 한 번 적용해서 확인한다.
+    private boolean changesTeamStats(Consumer<JPAUpdateClause> changes){
+
+        PathRecordingUpdateClause probe = new PathRecordingUpdateClause(em);
+        changes.accept(probe);
+        return probe.paths.contains(member.age) || probe.paths.contains(member.team);
+    }
+
+    private static void addTeamId(Set<Long> teamIds, Long teamId){
+        if(teamId != null){ // 팀이 없는 회원
+            teamIds.add(teamId);
+        }
+    }
+
+    private BulkResult.Chunk runChunk(LongUnaryOperator chunk, long fromId, int chunkSize){
+
+        long start = System.currentTimeMillis();
+        long affected = chunk.applyAsLong(fromId);
+        return new BulkResult.Chunk(fromId, fromId + chunkSize - 1, affected, System.currentTimeMillis() - start);
+    }
+
+    // set 절의 대상 컬럼만 기록하는 update 절 (실행하지 않는다)
+    private static class PathRecordingUpdateClause extends JPAUpdateClause {
+
+        private final Set<Path<?>> paths = new HashSet<>();
+
+        PathRecordingUpdateClause(EntityManager em) {
+            super(em, member);
+        }
+
+        @Override
+        public <T> JPAUpdateClause set(Path<T> path, T value) {
+            paths.add(path);
+            return this;
+        }
+
+        @Override
+        public <T> JPAUpdateClause set(Path<T> path, Expression<? extends T> expression) {
+            paths.add(path);
+            return this;
+        }
+
+        @Override
+        public <T> JPAUpdateClause setNull(Path<T> path) {
+            paths.add(path);
+            return this;
+        }
+
+        @Override
+        public JPAUpdateClause set(List<? extends Path<?>> paths, List<?> values) {
+            this.paths.addAll(paths);
+            return this;
+        }
+    }
+}
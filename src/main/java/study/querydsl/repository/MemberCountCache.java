@@ -0,0 +1,220 @@
+package study.querydsl.repository;
+
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.config.LaggingReplicaReads;
+import study.querydsl.dto.CountCacheStats;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.apache.logging.log4j.util.Strings.isEmpty;
+
+/**
+ * [전체 카운트] 쿼리 결과를 검색 조건(MemberSearchCondition) 별로 캐싱한다.
+ * -> 같은 조건으로 페이지만 넘기는 요청에서는 count 쿼리가 매번 날라갈 필요가 없다.
+ * -> TTL이 지나거나, Member/Team이 변경되면(MemberCountCacheInvalidator) 다시 count 쿼리를 날린다.
+ * -> 쓰기 트랜잭션 안에서는 캐시를 사용하지 않는다.(MemberSearchResultCache와 같다)
+ *    커밋 전의 insert/delete가 반영된 카운트를 다른 요청이 보면 안 되고(롤백될 수 있다), 자기 변경은 바로 보여야 한다.
+ */
+@Component
+public class MemberCountCache {
+
+    private final long ttlNanos;
+    private final int maxSize;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // invalidateAll()이 호출될 때마다 증가 : count 쿼리 도중에 변경이 일어났다면, 그 결과는 캐싱하지 않는다.
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // peek() 전용 : 근사 카운트(searchPageApproximate)가 getOrCompute()의 적중률을 왜곡하지 않도록 따로 센다.
+    private final AtomicLong peekHits = new AtomicLong();
+    private final AtomicLong peekMisses = new AtomicLong();
+
+    public MemberCountCache(@Value("${member.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${member.count-cache.max-size:1000}") int maxSize){
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+    }
+
+    public long getOrCompute(MemberSearchCondition condition, LongSupplier countQuery){
+
+        if(isReadWriteTransaction()){
+            return countQuery.getAsLong();
+        }
+
+        Key key = Key.of(condition);
+        long startGeneration = generation.get();
+
+        Entry entry = entries.get(key);
+        if(entry != null && entry.isValid(System.nanoTime(), startGeneration)){
+            hits.incrementAndGet();
+            return entry.count;
+        }
+
+        misses.incrementAndGet();
+        long replicaMark = LaggingReplicaReads.mark();
+        long count = countQuery.getAsLong();
+
+        // 복제 지연이 있는 replica에서 센 값은 캐싱하지 않는다.
+        if(startGeneration == generation.get() && !LaggingReplicaReads.since(replicaMark)){
+            put(key, new Entry(count, System.nanoTime() + ttlNanos, startGeneration));
+        }
+        return count;
+    }
+
+    private boolean isReadWriteTransaction(){
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    // 캐싱된 값이 있을 때만 돌려준다.(count 쿼리를 날리지 않음)
+    public OptionalLong peek(MemberSearchCondition condition){
+
+        Entry entry = entries.get(Key.of(condition));
+        if(entry != null && entry.isValid(System.nanoTime(), generation.get())){
+            peekHits.incrementAndGet();
+            return OptionalLong.of(entry.count);
+        }
+        peekMisses.incrementAndGet();
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Member, Team의 insert/update/delete 시 호출 : 어떤 조건의 카운트가 바뀌었는지 모르니 전부 비운다.
+     * -> 엔티티 리스너는 flush 시점(커밋 전)에 호출된다. 그 사이에 시작된 다른 요청은 아직 옛 카운트를 보고 다시 캐싱할 수 있으므로,
+     *    트랜잭션이 끝난 뒤에 한 번 더 비운다.(트랜잭션마다 콜백 1개, MemberSearchResultCache와 같은 방법)
+     */
+    public void invalidateAll(){
+
+        invalidateNow();
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)){
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+                    invalidateNow();
+                }
+            });
+        }
+    }
+
+    private void invalidateNow(){
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public CountCacheStats stats(){
+        return new CountCacheStats(hits.get(), misses.get(), evictions.get(), entries.size(), peekHits.get(), peekMisses.get());
+    }
+
+    private void put(Key key, Entry entry){
+
+        if(entries.size() >= maxSize && !entries.containsKey(key)){
+            evict();
+        }
+        entries.put(key, entry);
+    }
+
+    // 1. 만료된 항목을 먼저 지우고, 2. 그래도 가득 차 있다면 가장 먼저 만료될 항목을 지운다.
+    private void evict(){
+
+        long now = System.nanoTime();
+        long currentGeneration = generation.get();
+        entries.entrySet().removeIf(e -> {
+            boolean expired = !e.getValue().isValid(now, currentGeneration);
+            if(expired){
+                evictions.incrementAndGet();
+            }
+            return expired;
+        });
+
+        if(entries.size() < maxSize){
+            return;
+        }
+
+        entries.entrySet().stream()
+                .min((a, b) -> Long.compare(a.getValue().expiresAt - now, b.getValue().expiresAt - now))
+                .ifPresent(oldest -> {
+                    if(entries.remove(oldest.getKey(), oldest.getValue())){
+                        evictions.incrementAndGet();
+                    }
+                });
+    }
+
+    private static class Entry {
+
+        private final long count;
+        private final long expiresAt;
+        private final long generation;
+
+        Entry(long count, long expiresAt, long generation) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+            this.generation = generation;
+        }
+
+        boolean isValid(long now, long currentGeneration){
+            return generation == currentGeneration && expiresAt - now > 0;
+        }
+    }
+
+    /**
+     * 캐시 키 : 검색 조건을 [정규화]한 값
+     * -> usernameEq(), teamNameEq()는 빈 문자열을 조건 없음(null)으로 취급하므로, 키도 똑같이 맞춰준다.
+     */
+    private static class Key {
+
+        private final String username;
+        private final String teamName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+
+        private Key(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+            this.username = username;
+            this.teamName = teamName;
+            this.ageGoe = ageGoe;
+            this.ageLoe = ageLoe;
+        }
+
+        static Key of(MemberSearchCondition condition){
+            return new Key(
+                    isEmpty(condition.getUsername()) ? null : condition.getUsername(),
+                    isEmpty(condition.getTeamName()) ? null : condition.getTeamName(),
+                    condition.getAgeGoe(),
+                    condition.getAgeLoe());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(username, key.username)
+                    && Objects.equals(teamName, key.teamName)
+                    && Objects.equals(ageGoe, key.ageGoe)
+                    && Objects.equals(ageLoe, key.ageLoe);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, teamName, ageGoe, ageLoe);
+        }
+    }
+}
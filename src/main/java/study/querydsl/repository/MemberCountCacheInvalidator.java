@@ -0,0 +1,26 @@
+package study.querydsl.repository;
+
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Member, Team 엔티티 리스너(@EntityListeners)
+ * -> 스프링 부트가 하이버네이트에 SpringBeanContainer를 등록해 주기 때문에, 엔티티 리스너도 스프링 빈을 주입 받을 수 있다.
+ * 주의) 벌크 연산(update/delete execute())은 영속성 컨텍스트를 거치지 않기에 이 리스너가 호출되지 않는다.
+ *      -> 벌크 연산 후에는 MemberCountCache.invalidateAll()을 직접 호출해야 한다.
+ */
+@RequiredArgsConstructor
+public class MemberCountCacheInvalidator {
+
+    private final MemberCountCache countCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity){
+        countCache.invalidateAll();
+    }
+}
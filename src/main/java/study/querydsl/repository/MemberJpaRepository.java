@@ -8,7 +8,12 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RestController;
 import study.querydsl.dto.MemberSearchCondition;
@@ -18,9 +23,16 @@ import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.entity.Team;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.apache.logging.log4j.util.Strings.isEmpty;
 import static study.querydsl.entity.QMember.member;
@@ -30,25 +42,104 @@ import static study.querydsl.entity.QTeam.team;
 public class MemberJpaRepository {
 
 
+    // 스트리밍 조회 시, JDBC 드라이버가 DB로부터 한 번에 가져 오는 row 수
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final JPAQueryFactory queryFactory;
 
     private final EntityManager entityManager;
 
+    private final MemberSearchQueryCache searchQueryCache;
+
+    private final MemberSqlSearch sqlSearch;
+
+    private final MemberSearchEngine searchEngine;
+
+    private final MemberSearchIndexAdvisor indexAdvisor;
+
+    private final TeamBatchLoader teamBatchLoader;
+
+    private final int teamBatchSize;
+
+    private final int multiLoadBatchSize;
+
     // 생성자가 1개일 떄에는 자동으로 @Autowired가 붙는다.
-    public MemberJpaRepository(EntityManager em){
+    public MemberJpaRepository(EntityManager em,
+                               MemberSearchQueryCache searchQueryCache,
+                               MemberSqlSearch sqlSearch,
+                               @Value("${member.search.engine:JPA}") MemberSearchEngine searchEngine,
+                               MemberSearchIndexAdvisor indexAdvisor,
+                               TeamBatchLoader teamBatchLoader,
+                               @Value("${member.team-batch-size:100}") int teamBatchSize,
+                               @Value("${member.multi-load-batch-size:100}") int multiLoadBatchSize){
         this.entityManager = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchQueryCache = searchQueryCache;
+        this.sqlSearch = sqlSearch;
+        this.searchEngine = searchEngine;
+        this.indexAdvisor = indexAdvisor;
+        this.teamBatchLoader = teamBatchLoader;
+        this.teamBatchSize = teamBatchSize;
+        this.multiLoadBatchSize = multiLoadBatchSize;
     }
 
     public void save(Member member){
         entityManager.persist(member);
     }
 
+    /**
+     * 팀에 회원 추가 : 팀을 조회하지 않고 getReference()로 FK만 설정한다.
+     * -> 팀에 회원이 몇 명이든 Team.members를 로딩하지 않으므로, 비용이 팀 크기와 상관없다.
+     */
+    public void saveToTeam(Member member, Long teamId){
+        member.changeTeam(entityManager.getReference(Team.class, teamId));
+        entityManager.persist(member);
+    }
+
+    // 회원 가입 1건 = 트랜잭션 1개 (write-behind 모드가 꺼져 있을 때 사용)
+    @Transactional
+    public Long create(Member member, Long teamId){
+        if(teamId != null){
+            saveToTeam(member, teamId);
+        }
+        else{
+            save(member);
+        }
+        return member.getId();
+    }
+
+    // 회원의 팀 변경 : saveToTeam()과 마찬가지로 새 팀은 프록시로만 사용한다.
+    public void moveToTeam(Long memberId, Long teamId){
+        Member findMember = entityManager.find(Member.class, memberId);
+        findMember.changeTeam(entityManager.getReference(Team.class, teamId));
+    }
+
     public Optional<Member> findById(Long id){
         Member findMember = entityManager.find(Member.class, id);
         return Optional.of(findMember);
     }
 
+    /**
+     * id 여러 개를 한 번에 조회 : findById()를 반복하면 id 수만큼 DB 왕복이 생긴다.
+     * -> 하이버네이트 multi-load : 1. 영속성 컨텍스트 2. 2차 캐시를 먼저 확인하고,
+     *    남은 id만 multiLoadBatchSize 개씩 "where member_id in (...)"로 조회한다.
+     * -> 결과는 ids의 순서를 따르고, 없는(삭제된) id는 빠진다.
+     */
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIds(Collection<Long> ids){
+
+        List<Member> members = new ArrayList<>(entityManager.unwrap(Session.class)
+                .byMultipleIds(Member.class)
+                .withBatchSize(multiLoadBatchSize)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(true) // ids 순서대로 (없는 id 자리는 null)
+                .enableReturnOfDeletedEntities(false)
+                .multiLoad(new ArrayList<>(ids)));
+
+        members.removeIf(Objects::isNull);
+        return members;
+    }
+
     public List<Member> findAll(){
 
        return entityManager.createQuery("select m from Member m",Member.class)
@@ -65,6 +156,24 @@ public class MemberJpaRepository {
 
     }
 
+    // 팀까지 사용할 회원 목록 : 팀을 어떻게 가져올지 호출하는 쪽에서 정한다.
+    public List<Member> findAll_Querydsl(TeamFetchMode fetchMode){
+
+        if(fetchMode == TeamFetchMode.JOIN){
+            return queryFactory
+                    .selectFrom(member)
+                    .leftJoin(member.team, team).fetchJoin() // 팀이 없는 회원도 포함
+                    .fetch();
+        }
+
+        List<Member> members = findAll_Querydsl();
+        if(fetchMode == TeamFetchMode.BATCH){
+            teamBatchLoader.load(members, teamBatchSize);
+        }
+        return members;
+
+    }
+
     public List<Member> findByUsername(String username){
 
         return entityManager.createQuery("select m from Member m Where m.username = :username",Member.class)
@@ -83,9 +192,65 @@ public class MemberJpaRepository {
 
 
     }
+    /**
+     * 읽기 전용 조회 : 위의 findAll(), findByUsername()과 결과는 같지만, 조회한 엔티티를 수정할 수 없다.
+     *
+     * 일반 조회는 엔티티마다 스냅샷(로딩 시점의 값 복사본)을 만들어 두고, flush 할 때 모든 엔티티를 스냅샷과 비교한다.(변경 감지)
+     * -> 읽기만 할 거라면 메모리 2배 + flush 시 비교 비용이 낭비다.
+     * 1. HINT_READ_ONLY : 스냅샷을 만들지 않고, 변경 감지에서도 제외한다.(값을 바꿔도 update가 날라가지 않음)
+     * 2. @Transactional(readOnly = true) : 새 트랜잭션이라면 세션의 flush 모드를 MANUAL로 (flush 자체를 하지 않음)
+     * 3. HINT_FLUSH_MODE(MANUAL) : 이미 쓰기 트랜잭션 안이라면 이 쿼리 전에 자동 flush를 하지 않는다.
+     *    -> 아직 flush 되지 않은 변경 내용은 조회 결과에 반영되지 않을 수 있다.
+     */
+    @Transactional(readOnly = true)
+    public List<Member> findAllReadOnly(){
+
+        return entityManager.createQuery("select m from Member m",Member.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.MANUAL)
+                .getResultList();
+
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findAllReadOnly_Querydsl(){
+
+        return queryFactory
+                .selectFrom(member)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.MANUAL)
+                .fetch();
+
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findByUsernameReadOnly(String username){
+
+        return entityManager.createQuery("select m from Member m Where m.username = :username",Member.class)
+                .setParameter("username",username)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.MANUAL)
+                .getResultList();
+
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findByUsernameReadOnly_Querydsl(String username){
+
+        return queryFactory
+                .selectFrom(member)
+                .where(member.username.eq(username))
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.MANUAL)
+                .fetch();
+
+    }
+
     // Builder 사용하여 동적 쿼리 구현
+    @Transactional(readOnly = true) // replica 프로필이면 replica에서 조회
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
 
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
 
         BooleanBuilder builder = new BooleanBuilder();
 
@@ -119,8 +284,30 @@ public class MemberJpaRepository {
     }
 
     // Where절에 다중 파라미터로 동적 쿼리 구현
+    // -> 조건의 모양(16가지) 별로 미리 만들어 둔 JPQL을 재사용한다.(MemberSearchQueryCache)
+    // -> member.search.engine: SQL 이면 querydsl-sql + JDBC로 실행한다.(MemberSqlSearch)
+    @Transactional(readOnly = true) // replica 프로필이면 replica에서 조회
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        if(searchEngine == MemberSearchEngine.SQL){
+            return sqlSearch.search(condition);
+        }
+        return searchQueryCache.search(condition);
+    }
+
+    /**
+     * search()와 조건은 같지만, 결과를 List로 한 번에 메모리에 올리지 않고 DB 커서로 한 건씩 읽어서 consumer에게 넘긴다.
+     * -> 결과가 아무리 많아도 메모리 사용량이 일정하다.
+     * -> 스트림을 다 읽을 때까지 커넥션을 사용하기에 트랜잭션 안에서 동작해야 한다.
+     * @return 넘겨 준 row 수
+     */
+    @Transactional(readOnly = true)
+    public long searchStream(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer) {
+
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        long count = 0;
+
+        try (Stream<MemberTeamDto> stream = queryFactory
                 .select(new QMemberTeamDto(
                         member.id,
                         member.username,
@@ -134,7 +321,21 @@ public class MemberJpaRepository {
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
-                .fetch();
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE) // 서버 측 커서에서 fetch size 만큼씩 읽어 온다.
+                .stream()) {
+
+            /**
+             * DTO 조회라서 영속성 컨텍스트에 엔티티가 쌓이지 않는다. -> entityManager.clear()를 하지 않는다.
+             * -> 호출한 쪽의 트랜잭션에 참여한 경우, clear()는 아직 flush 안 된 호출한 쪽의 변경까지 버린다.(detach)
+             */
+            Iterator<MemberTeamDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+        }
+
+        return count;
     }
 
     private BooleanExpression ageLoe(Integer ageLoe) {
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+// 페이징 조회 전략 : MemberRepositoryCustom.searchPage()를 호출할 때마다 선택할 수 있다.
+public enum MemberPageStrategy {
+
+    // DTO 프로젝션 + left join을 그대로 offset/limit (searchPageComplex2와 같음)
+    OFFSET,
+
+    /**
+     * 1단계) 필요한 조건만으로 해당 페이지의 member.id만 조회(PK 인덱스 순서로 offset/limit)
+     * 2단계) 그 id들만 IN 쿼리로 조회하면서 team과 join해 DTO를 채운다.
+     * -> 뒤쪽 페이지일수록, join이 무거울수록 OFFSET보다 유리하다.
+     */
+    DEFERRED_JOIN
+}
@@ -7,7 +7,7 @@ import java.util.List;
 
 
 //Spring Data Jpa와 Querydsl의 조합
-public interface MemberRepository extends JpaRepository<Member,Long>,MemberRepositoryCustom { // 인터페이스는 다중 상속 가능!
+public interface MemberRepository extends JpaRepository<Member,Long>,MemberRepositoryCustom,MemberUpsertRepository { // 인터페이스는 다중 상속 가능!
 
     // 쿼리 메서드 기능을 이용
     List<Member> findByUsername(String username); // == "select m from Member m Where username = :username"([정적] 쿼리)
@@ -4,6 +4,8 @@ package study.querydsl.repository;
 import lombok.Data;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberCursorSlice;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
@@ -18,4 +20,20 @@ public interface MemberRepositoryCustom {
     Page<MemberTeamDto> searchPageComplex1(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex2(MemberSearchCondition condition, Pageable pageable);
 
+    // offset 대신 커서(member.id)를 기준으로 다음 페이지를 조회(keyset pagination)
+    // -> 몇 번째 페이지든 조회 비용이 첫 페이지와 같다.
+    MemberCursorSlice searchSlice(MemberSearchCondition condition, String cursor, int size);
+
+    // 페이징 전략(OFFSET, DEFERRED_JOIN)을 호출할 때마다 선택
+    Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable, MemberPageStrategy strategy);
+
+    // [데이터 내용] 쿼리와 [전체 카운트] 쿼리를 각각 다른 커넥션(읽기 전용 트랜잭션)에서 동시에 실행
+    Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable);
+
+    // [전체 카운트]가 필요 없는 무한 스크롤 용 : size + 1개를 조회해서 다음 페이지 여부만 판단(count 쿼리 X)
+    Slice<MemberTeamDto> searchSliceByPage(MemberSearchCondition condition, Pageable pageable);
+
+    // searchSliceByPage()와 같지만, [전체 카운트]를 COUNT(*) 대신 테이블 통계/캐시로 [대략] 채운다.
+    Page<MemberTeamDto> searchPageApproximate(MemberSearchCondition condition, Pageable pageable);
+
 }
@@ -1,59 +1,200 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.config.LaggingReplicaReads;
+import study.querydsl.dto.ApproximatePage;
+import study.querydsl.dto.MemberCursorSlice;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.apache.logging.log4j.util.Strings.isEmpty;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+@Slf4j
 @Repository
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     private final JPAQueryFactory queryFactory;
 
+    private final MemberCountCache countCache;
+
+    private final MemberSearchResultCache resultCache;
+
+    private final MemberSearchQueryCache searchQueryCache;
+
+    // search() 실행 방식 : JPA(MemberSearchQueryCache) 또는 SQL(MemberSqlSearch)
+    private final MemberSqlSearch sqlSearch;
+    private final MemberSearchEngine searchEngine;
+
+    private final MemberSearchIndexAdvisor indexAdvisor;
+
+    private final MemberSortSupport sortSupport;
+
+    private final MemberTableStatistics tableStatistics;
+
+    // searchPageParallel() 용 : 쿼리마다 별도의 쓰레드, 별도의 읽기 전용 트랜잭션(커넥션)
+    private final AsyncTaskExecutor queryExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration contentTimeout;
+    private final Duration countTimeout;
+
+    // 커서 페이징 1번에 조회할 수 있는 최대 건수
+    private final int maxCursorSize;
+
     //생성자가 1개일 떈, 자동으로 @Autowired가 붙는다
-    public MemberRepositoryImpl(EntityManager entityManager){
+    public MemberRepositoryImpl(EntityManager entityManager,
+                                MemberCountCache countCache,
+                                MemberSearchResultCache resultCache,
+                                MemberSearchQueryCache searchQueryCache,
+                                MemberSqlSearch sqlSearch,
+                                @Value("${member.search.engine:JPA}") MemberSearchEngine searchEngine,
+                                MemberSearchIndexAdvisor indexAdvisor,
+                                MemberSortSupport sortSupport,
+                                MemberTableStatistics tableStatistics,
+                                @Qualifier("memberQueryExecutor") AsyncTaskExecutor queryExecutor,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${member.parallel-page.content-timeout:5s}") Duration contentTimeout,
+                                @Value("${member.parallel-page.count-timeout:2s}") Duration countTimeout,
+                                @Value("${member.cursor.max-size:1000}") int maxCursorSize){
         this.queryFactory = new JPAQueryFactory(entityManager);
+        this.countCache = countCache;
+        this.resultCache = resultCache;
+        this.searchQueryCache = searchQueryCache;
+        this.sqlSearch = sqlSearch;
+        this.searchEngine = searchEngine;
+        this.indexAdvisor = indexAdvisor;
+        this.sortSupport = sortSupport;
+        this.tableStatistics = tableStatistics;
+        this.queryExecutor = queryExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.contentTimeout = contentTimeout;
+        this.countTimeout = countTimeout;
+        this.maxCursorSize = maxCursorSize;
     }
 
+    /**
+     * 모든 조회는 검색 결과 캐시(MemberSearchResultCache)를 먼저 확인하고, 없을 때만 아래 ~Uncached() 메서드로 DB를 조회한다.
+     * -> 키 : 메서드 + 검색 조건 + 페이지 정보
+     * -> 인덱스 추천용 통계(MemberSearchIndexAdvisor)는 캐시를 확인하기 전에 센다. 캐시에 자주 걸리는 조건이 가장 자주 쓰이는 조건이다.
+     *
+     * 검색, 페이징, 카운트는 @Transactional(readOnly = true) : replica 프로필이면 replica에서 조회한다.(ReplicaRoutingDataSource)
+     * -> 이미 읽기-쓰기 트랜잭션 안에서 호출되면 그 트랜잭션(primary)에 참여하므로, 아직 커밋 안 된 변경도 보인다.
+     * -> searchPageParallel()은 쿼리마다 직접 읽기 전용 트랜잭션을 열기 때문에 붙이지 않는다.
+     */
     @Override
-    // Where절에 다중 파라미터로 [동적] 쿼리 구현
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id,
-                        member.username,
-                        member.age,
-                        team.id,
-                        team.name))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("search", condition, List.of(), () -> searchUncached(condition));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("searchPageSimple", condition, List.of(pageable), () -> searchPageSimpleUncached(condition, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageComplex1(MemberSearchCondition condition, Pageable pageable) {
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("searchPageComplex1", condition, List.of(pageable), () -> searchPageComplex1Uncached(condition, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageComplex2(MemberSearchCondition condition, Pageable pageable) {
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("searchPageComplex2", condition, List.of(pageable), () -> searchPageComplex2Uncached(condition, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MemberCursorSlice searchSlice(MemberSearchCondition condition, String cursor, int size) {
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("searchSliceByCursor", condition, Arrays.asList(cursor, size), () -> searchSliceUncached(condition, cursor, size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable, MemberPageStrategy strategy) {
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("searchPage", condition, Arrays.asList(pageable, strategy), () -> searchPageUncached(condition, pageable, strategy));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSliceByPage(MemberSearchCondition condition, Pageable pageable) {
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("searchSliceByPage", condition, List.of(pageable), () -> searchSliceByPageUncached(condition, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageApproximate(MemberSearchCondition condition, Pageable pageable) {
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("searchPageApproximate", condition, List.of(pageable), () -> searchPageApproximateUncached(condition, pageable));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        indexAdvisor.record(condition); // 인덱스 추천용 통계
+        return resultCache.getOrCompute("searchPageParallel", condition, List.of(pageable), () -> searchPageParallelUncached(condition, pageable));
+    }
+
+    // Where절에 다중 파라미터로 [동적] 쿼리 구현
+    // -> 조건의 모양(16가지) 별로 미리 만들어 둔 JPQL을 재사용한다.(MemberSearchQueryCache)
+    // -> member.search.engine: SQL 이면 JPQL 대신 querydsl-sql로 만든 SQL을 JDBC로 바로 실행한다.(MemberSqlSearch)
+    private List<MemberTeamDto> searchUncached(MemberSearchCondition condition) {
+        if(searchEngine == MemberSearchEngine.SQL){
+            return sqlSearch.search(condition);
+        }
+        return searchQueryCache.search(condition);
+    }
+
+    private Page<MemberTeamDto> searchPageSimpleUncached(MemberSearchCondition condition, Pageable pageable) {
 
         QueryResults<MemberTeamDto> results = queryFactory
                 .select(new QMemberTeamDto(
@@ -69,6 +210,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .orderBy(sortSupport.orderBy(pageable)) // 인덱스가 있는 속성만 정렬 + member.id tiebreaker
                 .offset(pageable.getOffset()) // [1번] 조회해 올 때, 몇 번째 부터 들고 올거냐?
                 .limit(pageable.getPageSize()) // [1번] 조회해 올 떄, 몇 개를 들고 올거냐??
                 .fetchResults(); // fetchResults() : [데이터 내용],[전체 카운트] 조희를 한다.
@@ -83,8 +225,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     }
 
-    @Override
-    public Page<MemberTeamDto> searchPageComplex1(MemberSearchCondition condition, Pageable pageable) {
+    private Page<MemberTeamDto> searchPageComplex1Uncached(MemberSearchCondition condition, Pageable pageable) {
 
 
         List<MemberTeamDto> contents = queryFactory
@@ -101,12 +242,13 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .orderBy(sortSupport.orderBy(pageable))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();// fetchResult() -> fetch()로 변경 : [데이터 내용] 용 쿼리와 [전체 카운트] 용 쿼리를 분리
                 // 위 코드는 [데이터 내용] 용 쿼리이다.
 
-            long total  = queryFactory
+            long total  = countCache.getOrCompute(condition, () -> queryFactory
                 .select(member)
                 .from(member)
                 .leftJoin(member.team, team)
@@ -115,8 +257,9 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
-                .fetchCount(); // fetchCount() : [전체 카운트]를 조회
+                .fetchCount()); // fetchCount() : [전체 카운트]를 조회
         // 위 코드는 [전체 카운트]를 조회하는 쿼리
+        // -> 같은 조건의 [전체 카운트]는 MemberCountCache에 캐싱해 두고 재사용한다.
 
 /**
  * [전체 카운트]를 분리하면 좋은 이유 : fetchResult()는 알아서 left join을 이용해서 totalcount 쿼리를 날린다.
@@ -129,8 +272,8 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
     return new PageImpl<>(contents,pageable,total);
     }
 
-    @Override // [전체 카운트] 쿼리를 날리지 않아도, [전체 카운트]를 알 수 있는 경우가 있다.
-    public Page<MemberTeamDto> searchPageComplex2(MemberSearchCondition condition, Pageable pageable) {
+    // [전체 카운트] 쿼리를 날리지 않아도, [전체 카운트]를 알 수 있는 경우가 있다.
+    private Page<MemberTeamDto> searchPageComplex2Uncached(MemberSearchCondition condition, Pageable pageable) {
 
         List<MemberTeamDto> contents = queryFactory
                 .select(new QMemberTeamDto(
@@ -146,6 +289,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .orderBy(sortSupport.orderBy(pageable))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
@@ -169,7 +313,354 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
          * 작을 때는 쿼리를 날리게 하는 방법이 아래와 같다.
          */
 
-        return PageableExecutionUtils.getPage(contents,pageable,()-> countQuery.fetchCount());
+        return PageableExecutionUtils.getPage(contents,pageable,()-> countCache.getOrCompute(condition, countQuery::fetchCount));
+    }
+
+    // offset을 사용하지 않는 커서(keyset) 기반 페이징
+    private MemberCursorSlice searchSliceUncached(MemberSearchCondition condition, String cursor, int size) {
+
+        if(size <= 0 || size > maxCursorSize){
+            throw new InvalidPageRequestException("size는 1 ~ " + maxCursorSize + " 이어야 합니다. size = " + size);
+        }
+
+        /**
+         * offset 방식은 DB가 offset 만큼의 row를 읽고 버려야 하기에, 뒤 페이지로 갈수록 느려진다.
+         * -> 마지막으로 읽은 member.id를 커서로 넘겨 받아서, "member.id > 커서" 조건으로 바로 찾아 들어간다.(PK 인덱스를 탐)
+         * -> 다음 페이지가 있는 지는 size + 1개를 조회해서 판단한다.([전체 카운트] 쿼리 X)
+         */
+        List<MemberTeamDto> contents = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        memberIdGt(decodeCursor(cursor)),
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .orderBy(member.id.asc())
+                .limit(size + 1)
+                .fetch();
+
+        boolean hasNext = contents.size() > size;
+        if(hasNext){
+            contents = contents.subList(0, size);
+        }
+
+        String nextCursor = hasNext ? encodeCursor(contents.get(contents.size() - 1).getMemberId()) : null;
+
+        return new MemberCursorSlice(contents, nextCursor, hasNext);
+    }
+
+    private Page<MemberTeamDto> searchPageUncached(MemberSearchCondition condition, Pageable pageable, MemberPageStrategy strategy) {
+
+        if(strategy == MemberPageStrategy.DEFERRED_JOIN){
+            return searchPageDeferredJoin(condition, pageable);
+        }
+        return searchPageComplex2Uncached(condition, pageable);
+    }
+
+    private Slice<MemberTeamDto> searchSliceByPageUncached(MemberSearchCondition condition, Pageable pageable) {
+
+        List<MemberTeamDto> contents = fetchContentWithNext(condition, pageable);
+
+        boolean hasNext = contents.size() > pageable.getPageSize();
+        if(hasNext){
+            contents = contents.subList(0, pageable.getPageSize());
+        }
+
+        return new SliceImpl<>(contents, pageable, hasNext);
+    }
+
+    /**
+     * [전체 카운트]를 대략 채운다.
+     * 1. 마지막 페이지라면 offset + content 수로 정확히 알 수 있다.
+     * 2. 조건이 없다면 테이블 통계(예상 row 수)를 사용한다.
+     * 3. 조건이 있다면 [전체 카운트] 캐시에 남아 있는 값을 사용한다.
+     * 4. 그것도 없다면 "최소한 다음 페이지가 있다"(offset + size + 1)로 채운다.
+     */
+    private Page<MemberTeamDto> searchPageApproximateUncached(MemberSearchCondition condition, Pageable pageable) {
+
+        Slice<MemberTeamDto> slice = searchSliceByPageUncached(condition, pageable);
+        long lowerBound = pageable.getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+
+        if(!slice.hasNext()){
+            return new PageImpl<>(slice.getContent(), pageable, lowerBound);
+        }
+
+        long total = MemberSearchShape.of(condition) == 0
+                ? tableStatistics.estimateMemberRows().orElse(lowerBound)
+                : countCache.peek(condition).orElse(lowerBound);
+
+        return new PageImpl<>(slice.getContent(), pageable, Math.max(total, lowerBound));
+    }
+
+    // size + 1개를 조회 : 1개가 더 있으면 다음 페이지가 있다.
+    private List<MemberTeamDto> fetchContentWithNext(MemberSearchCondition condition, Pageable pageable) {
+
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .orderBy(sortSupport.orderBy(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+    }
+
+    // "ids first" 페이징 : 좁은 쿼리로 id만 페이징한 뒤, 해당 id들만 DTO로 채운다.
+    private Page<MemberTeamDto> searchPageDeferredJoin(MemberSearchCondition condition, Pageable pageable) {
+
+        OrderSpecifier<?>[] orderBy = sortSupport.orderBy(pageable);
+
+        // 1단계) member.id만 조회 : team 조건이 있을 때만 join 한다.
+        JPAQuery<Long> idQuery = queryFactory
+                .select(member.id)
+                .from(member);
+
+        if(!isEmpty(condition.getTeamName())){
+            idQuery.join(member.team, team); // team.name = ? 조건이 붙으면 left join과 결과가 같다.
+        } else if(sortSupport.sortsByTeam(pageable)){
+            idQuery.leftJoin(member.team, team); // 팀이 없는 회원도 정렬 대상
+        }
+
+        List<Long> ids = idQuery
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .orderBy(orderBy)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        // 2단계) 해당 페이지의 id들만 team과 join해서 DTO로 조회
+        List<MemberTeamDto> contents = ids.isEmpty() ? List.of() : queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(ids))
+                .orderBy(orderBy) // 1단계와 같은 정렬(member.id tiebreaker 포함)이라 순서가 그대로 유지된다.
+                .fetch();
+
+        return PageableExecutionUtils.getPage(contents, pageable, () -> countCache.getOrCompute(condition, () -> narrowCount(condition)));
+    }
+
+    private Page<MemberTeamDto> searchPageParallelUncached(MemberSearchCondition condition, Pageable pageable) {
+
+        /**
+         * 이미 트랜잭션 안에서 호출됐다면, 아직 커밋되지 않은 변경 내용이 다른 커넥션에서는 보이지 않는다.
+         * -> 이 경우에는 같은 트랜잭션에서 순서대로 실행한다.
+         */
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            Page<MemberTeamDto> page = searchPageComplex2Uncached(condition, pageable);
+            return new ApproximatePage<>(page.getContent(), pageable, page.getTotalElements(), false);
+        }
+
+        // 조회 쓰레드에서 지연된 replica를 읽었으면, 이 쓰레드(검색 결과 캐시)에도 알린다.
+        AtomicBoolean laggingRead = new AtomicBoolean();
+
+        Future<List<MemberTeamDto>> contentFuture = submit(
+                () -> readOnlyTransaction.execute(status -> fetchContent(condition, pageable)), laggingRead);
+
+        Future<Long> countFuture;
+        try {
+            countFuture = submit(
+                    () -> readOnlyTransaction.execute(status -> countCache.getOrCompute(condition, () -> {
+                        // 쓰레드를 cancel 해도 JDBC 쿼리는 멈추지 않을 수 있으므로, DB에도 타임아웃을 걸어 둔다.
+                        Long count = narrowCountQuery(condition)
+                                .setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, countTimeout.toMillis())
+                                .fetchOne();
+                        return count == null ? 0 : count;
+                    })), laggingRead);
+        } catch (QueryTimeoutException e) {
+            contentFuture.cancel(true);
+            throw e;
+        }
+
+        List<MemberTeamDto> contents;
+        try {
+            contents = await(contentFuture, contentTimeout);
+        } catch (RuntimeException e) {
+            countFuture.cancel(true);
+            throw e;
+        }
+
+        // [데이터 내용]만으로 [전체 카운트]를 알 수 있다면, count 쿼리의 결과를 기다리지 않는다.(PageableExecutionUtils)
+        AtomicBoolean approximate = new AtomicBoolean();
+        Page<MemberTeamDto> page = PageableExecutionUtils.getPage(contents, pageable, () -> awaitCount(countFuture, pageable, contents, approximate));
+        countFuture.cancel(true); // 이미 끝났다면 아무 일도 일어나지 않는다.
+        if(laggingRead.get()){
+            LaggingReplicaReads.record();
+        }
+        return new ApproximatePage<>(page.getContent(), pageable, page.getTotalElements(), approximate.get());
+    }
+
+    /**
+     * 조회 전용 쓰레드 풀(memberQueryExecutor)이 가득 차면 요청 쓰레드에서 대신 실행하지 않는다.(그러면 타임아웃이 걸리지 않는다)
+     * -> 바로 QueryTimeoutException(503)으로 응답한다.
+     */
+    private <T> Future<T> submit(Callable<T> task, AtomicBoolean laggingRead) {
+
+        try {
+            return queryExecutor.submit(() -> {
+                long replicaMark = LaggingReplicaReads.mark();
+                try {
+                    return task.call();
+                } finally {
+                    if(LaggingReplicaReads.since(replicaMark)){
+                        laggingRead.set(true);
+                    }
+                }
+            });
+        } catch (TaskRejectedException e) {
+            throw new QueryTimeoutException("조회 쓰레드가 모두 사용 중입니다. 잠시 후 다시 시도해 주세요.", e);
+        }
+    }
+
+    /**
+     * 카운트가 타임아웃 안에 오지 않으면, [데이터 내용]은 그대로 돌려주고 [전체 카운트]는 "최소한 다음 페이지가 있다" 정도로만 알려준다.
+     * -> 느린 카운트 때문에 [데이터 내용]까지 늦어지지 않도록
+     * -> DB의 query timeout(같은 시간)이 먼저 걸려도 마찬가지 (await()가 QueryTimeoutException으로 바꿔 준다)
+     */
+    private long awaitCount(Future<Long> countFuture, Pageable pageable, List<MemberTeamDto> contents, AtomicBoolean approximate) {
+
+        try {
+            return await(countFuture, countTimeout);
+        } catch (QueryTimeoutException e) {
+            log.warn("[전체 카운트] 쿼리가 {} 안에 끝나지 않아 근사값을 사용합니다.", countTimeout);
+            approximate.set(true); // 응답에 근사값임을 표시(ApproximatePage)
+            return pageable.getOffset() + contents.size() + 1;
+        }
+    }
+
+    private <T> T await(Future<T> future, Duration timeout) {
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new QueryTimeoutException("쿼리가 " + timeout + " 안에 끝나지 않았습니다.", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("쿼리를 기다리는 도중 인터럽트 되었습니다.", e);
+        } catch (ExecutionException e) {
+            // 조회 쓰레드의 예외는 리포지토리 프록시의 예외 변환을 거치지 않았으므로, JPA/Hibernate/JDBC의 타임아웃을 직접 바꾼다.
+            if(isQueryTimeout(e.getCause())){
+                throw new QueryTimeoutException("쿼리가 DB의 제한 시간(" + timeout + ") 안에 끝나지 않았습니다.", e.getCause());
+            }
+            if(e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static boolean isQueryTimeout(Throwable e){
+
+        for(Throwable cause = e; cause != null; cause = cause.getCause()){
+            if(cause instanceof QueryTimeoutException
+                    || cause instanceof jakarta.persistence.QueryTimeoutException
+                    || cause instanceof org.hibernate.QueryTimeoutException
+                    || cause instanceof SQLTimeoutException){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<MemberTeamDto> fetchContent(MemberSearchCondition condition, Pageable pageable) {
+
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .orderBy(sortSupport.orderBy(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+    }
+
+    // [전체 카운트]도 team 조건이 있을 때만 join 한다.
+    private long narrowCount(MemberSearchCondition condition) {
+
+        Long count = narrowCountQuery(condition).fetchOne();
+        return count == null ? 0 : count;
+    }
+
+    private JPAQuery<Long> narrowCountQuery(MemberSearchCondition condition) {
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member);
+
+        if(!isEmpty(condition.getTeamName())){
+            countQuery.join(member.team, team);
+        }
+
+        return countQuery
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+    }
+
+    // 커서는 클라이언트 입장에서 의미 없는 문자열(opaque)로 보이도록 인코딩한다.
+    private String encodeCursor(Long lastMemberId) {
+
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastMemberId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long decodeCursor(String cursor) {
+
+        if(isEmpty(cursor)){
+            return null; // 첫 페이지
+        }
+
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) { // NumberFormatException도 IllegalArgumentException의 하위 타입
+            throw new InvalidPageRequestException("잘못된 커서입니다. cursor = " + cursor, e);
+        }
+    }
+
+    private BooleanExpression memberIdGt(Long lastMemberId) {
+
+        return lastMemberId == null ? null : member.id.gt(lastMemberId);
     }
 
     private BooleanExpression ageLoe(Integer ageLoe) {
@@ -0,0 +1,9 @@
+package study.querydsl.repository;
+
+// search()를 어떤 방식으로 실행할지 (member.search.engine)
+public enum MemberSearchEngine {
+
+    JPA, // JPQL -> 하이버네이트가 SQL 생성 -> DTO (MemberSearchQueryCache)
+    SQL  // querydsl-sql로 만든 SQL을 JDBC로 바로 실행 -> ResultSet에서 바로 DTO (MemberSqlSearch)
+
+}
@@ -0,0 +1,113 @@
+package study.querydsl.repository;
+
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.IndexRecommendation;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static study.querydsl.repository.MemberSearchShape.*;
+
+/**
+ * search* 메서드에 실제로 들어오는 검색 조건 조합(MemberSearchShape)을 기록해 두고, 그에 맞는 인덱스를 추천한다.
+ * -> 테넌트마다 검색 조건 비율이 다르기에, 짐작이 아니라 실제 호출 통계를 근거로 인덱스를 만든다.
+ *
+ * 추천 규칙
+ * 1. 동등 조건(=) 컬럼을 앞에, 범위 조건(age >=, <=) 컬럼을 뒤에 둔다.
+ * 2. teamName 조건은 team(name)으로 팀을 찾은 뒤, member(team_id, ...)로 join 한다.
+ * 3. 다른 추천 인덱스의 앞부분(prefix)과 같은 인덱스는 추천하지 않는다.(복합 인덱스가 대신할 수 있다)
+ */
+@Component
+public class MemberSearchIndexAdvisor {
+
+    private final LongAdder[] shapeCounts = new LongAdder[COUNT];
+
+    private final double minShare; // 전체 검색 중 이 비율 이상을 차지하는 조합만 추천
+
+    public MemberSearchIndexAdvisor(@Value("${member.index-advisor.min-share:0.05}") double minShare){
+        this.minShare = minShare;
+        for(int i = 0; i < COUNT; i++){
+            shapeCounts[i] = new LongAdder();
+        }
+    }
+
+    public void record(MemberSearchCondition condition){
+        shapeCounts[MemberSearchShape.of(condition)].increment();
+    }
+
+    public List<IndexRecommendation> recommendations(){
+
+        long total = 0;
+        for (LongAdder count : shapeCounts) {
+            total += count.sum();
+        }
+
+        // key = "table(columns)"
+        Map<String, IndexRecommendation> indexes = new LinkedHashMap<>();
+
+        for(int shape = 0; shape < COUNT; shape++){
+
+            long searches = shapeCounts[shape].sum();
+            if(searches == 0 || searches < total * minShare){
+                continue;
+            }
+
+            boolean ageRange = has(shape, AGE_GOE) || has(shape, AGE_LOE);
+
+            if(has(shape, USERNAME)){
+                add(indexes, "member", ageRange ? List.of("username", "age") : List.of("username"), searches);
+            } else if(has(shape, TEAM_NAME)){
+                add(indexes, "member", ageRange ? List.of("team_id", "age") : List.of("team_id"), searches);
+            } else if(ageRange){
+                add(indexes, "member", List.of("age"), searches);
+            }
+
+            if(has(shape, TEAM_NAME)){
+                add(indexes, "team", List.of("name"), searches);
+            }
+        }
+
+        List<IndexRecommendation> results = new ArrayList<>();
+        for (IndexRecommendation index : indexes.values()) {
+            if(!coveredByAnother(index, indexes.values())){
+                results.add(index);
+            }
+        }
+        results.sort(Comparator.comparingLong(IndexRecommendation::getSearches).reversed());
+        return results;
+    }
+
+    public void reset(){
+        for (LongAdder count : shapeCounts) {
+            count.reset();
+        }
+    }
+
+    private void add(Map<String, IndexRecommendation> indexes, String table, List<String> columns, long searches){
+
+        String key = table + columns;
+        IndexRecommendation existing = indexes.get(key);
+        long sum = existing == null ? searches : existing.getSearches() + searches;
+        indexes.put(key, new IndexRecommendation(table, columns, sum));
+    }
+
+    private boolean coveredByAnother(IndexRecommendation index, Iterable<IndexRecommendation> all){
+
+        for (IndexRecommendation other : all) {
+            if(other != index
+                    && other.getTable().equals(index.getTable())
+                    && other.getColumns().size() > index.getColumns().size()
+                    && other.getColumns().subList(0, index.getColumns().size()).equals(index.getColumns())){
+                return true;
+            }
+        }
+        return false;
+    }
+}
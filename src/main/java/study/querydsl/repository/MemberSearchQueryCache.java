@@ -0,0 +1,132 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * search() 용 [미리 컴파일 해 둔] 쿼리 캐시
+ *
+ * 기존 search()는 호출될 때마다 QMemberTeamDto 프로젝션, BooleanExpression을 새로 만들고, Querydsl이 JPQL 문자열을 다시 만든다.
+ * -> 그러나 검색 조건의 모양(MemberSearchShape)은 16가지 뿐이므로, 모양 별로 JPQL 문자열과 파라미터 바인딩 순서를 1번만 만들어 두고
+ *    요청마다 [값]만 바인딩한다.
+ * -> JPQL 문자열이 항상 같으므로, 하이버네이트의 쿼리 플랜 캐시(JPQL -> SQL 변환 결과)도 그대로 재사용된다.
+ */
+@Component
+public class MemberSearchQueryCache {
+
+    // JPQL에는 값 대신 파라미터 자리(?1, ?2...)만 들어간다.
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private final EntityManager entityManager;
+    private final JPAQueryFactory queryFactory;
+
+    // index = MemberSearchShape
+    private final AtomicReferenceArray<CompiledQuery> compiledQueries = new AtomicReferenceArray<>(MemberSearchShape.COUNT);
+
+    public MemberSearchQueryCache(EntityManager entityManager){
+        this.entityManager = entityManager;
+        this.queryFactory = new JPAQueryFactory(entityManager);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition){
+
+        CompiledQuery compiled = compiledQuery(MemberSearchShape.of(condition));
+
+        Query query = entityManager.createQuery(compiled.jpql);
+        for(int i = 0; i < compiled.bindings.size(); i++){
+            query.setParameter(i + 1, compiled.bindings.get(i).apply(condition)); // 값만 바인딩
+        }
+
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> results = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            results.add(new MemberTeamDto(
+                    (Long) columns[0],
+                    (String) columns[1],
+                    ((Number) columns[2]).intValue(),
+                    (Long) columns[3],
+                    (String) columns[4]));
+        }
+        return results;
+    }
+
+    private CompiledQuery compiledQuery(int shape){
+
+        CompiledQuery compiled = compiledQueries.get(shape);
+        if(compiled == null){
+            // 여러 쓰레드가 동시에 만들어도 결과는 같으므로, 먼저 들어간 것을 사용한다.
+            compiledQueries.compareAndSet(shape, null, compile(shape));
+            compiled = compiledQueries.get(shape);
+        }
+        return compiled;
+    }
+
+    /**
+     * 모양에 해당하는 조건만 where에 넣어서 JPQL 문자열을 만든다.
+     * -> 파라미터는 where에 등장하는 순서대로 ?1, ?2 ... 로 번호가 매겨지므로, bindings도 같은 순서로 쌓는다.
+     */
+    private CompiledQuery compile(int shape){
+
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team);
+
+        List<Function<MemberSearchCondition, Object>> bindings = new ArrayList<>();
+
+        if(MemberSearchShape.has(shape, MemberSearchShape.USERNAME)){
+            query.where(member.username.eq(USERNAME));
+            bindings.add(MemberSearchCondition::getUsername);
+        }
+        if(MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)){
+            query.where(team.name.eq(TEAM_NAME));
+            bindings.add(MemberSearchCondition::getTeamName);
+        }
+        if(MemberSearchShape.has(shape, MemberSearchShape.AGE_GOE)){
+            query.where(member.age.goe(AGE_GOE));
+            bindings.add(MemberSearchCondition::getAgeGoe);
+        }
+        if(MemberSearchShape.has(shape, MemberSearchShape.AGE_LOE)){
+            query.where(member.age.loe(AGE_LOE));
+            bindings.add(MemberSearchCondition::getAgeLoe);
+        }
+
+        return new CompiledQuery(query.toString(), List.copyOf(bindings));
+    }
+
+    private static class CompiledQuery {
+
+        private final String jpql;
+        private final List<Function<MemberSearchCondition, Object>> bindings;
+
+        CompiledQuery(String jpql, List<Function<MemberSearchCondition, Object>> bindings) {
+            this.jpql = jpql;
+            this.bindings = bindings;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package study.querydsl.repository;
+
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import study.querydsl.config.LaggingReplicaReads;
+import study.querydsl.dto.ApproximatePage;
+import study.querydsl.dto.MemberCursorSlice;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.ResultCacheStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import static org.apache.logging.log4j.util.Strings.isEmpty;
+
+/**
+ * 검색 결과 캐시 : MemberRepositoryCustom의 조회 결과를 (메서드 + 검색 조건 + 페이지 정보) 별로 캐싱한다.
+ *
+ * 1. 크기 제한은 항목 수가 아니라 [대략의 메모리 사용량](maxWeight)으로 한다. -> 넘으면 가장 오래 안 쓴 것부터 제거(LRU)
+ * 2. 무효화는 MemberCountCache처럼 전부 비우지 않는다.
+ *    -> 회원이 바뀌면 (username, 팀 이름, 나이)가 검색 조건에 걸리는 항목만 지운다.(MemberSearchResultInvalidator)
+ *    -> 예) 나이 15인 teamB 회원이 바뀌어도 teamName=teamA, 20 <= age <= 30 결과는 그대로 사용한다.
+ * 3. 쓰기 트랜잭션 안에서는 캐시를 사용하지 않는다.(커밋되지 않은 결과를 다른 요청이 보면 안 되고, 자기 변경은 바로 보여야 한다)
+ * 4. 조회하는 도중에 무효화가 있었다면, 그 결과는 캐싱하지 않는다.(MemberCountCache의 generation과 같은 방법)
+ * 5. [전체 카운트]가 근사값인 결과(ApproximatePage : count 쿼리 시간 초과)는 캐싱하지 않는다.(다음 요청은 정확한 값을 다시 시도)
+ * 6. 캐싱한 결과는 여러 요청이 같이 쓰므로, 내용(List)을 변경할 수 없는 복사본으로 바꿔서 저장하고 그것을 돌려준다.(freeze)
+ *    -> 한 요청이 결과를 정렬/추가하면 다른 요청의 결과와 weight가 함께 바뀌는 것을 막는다.
+ */
+@Component
+public class MemberSearchResultCache {
+
+    // MemberTeamDto 1개 : 객체 헤더 + 필드 + Long 2개 + String 2개의 대략적인 크기 (문자 수는 따로 더한다)
+    private static final long ROW_WEIGHT = 120;
+    private static final long RESULT_WEIGHT = 160; // Page/Slice/List 객체, 키
+
+    private static final int MAX_PENDING_FOOTPRINTS = 1000;
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final long maxWeight;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // 접근 순서 = LRU
+    private long weight;
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public MemberSearchResultCache(@Value("${member.result-cache.enabled:true}") boolean enabled,
+                                   @Value("${member.result-cache.ttl:60s}") Duration ttl,
+                                   @Value("${member.result-cache.max-weight:16MB}") DataSize maxWeight){
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.maxWeight = maxWeight.toBytes();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(String method, MemberSearchCondition condition, List<?> page, Supplier<T> query){
+
+        if(!enabled || isReadWriteTransaction()){
+            return query.get();
+        }
+
+        Key key = Key.of(method, condition, page);
+        long startGeneration;
+
+        synchronized (this){
+            Entry entry = entries.get(key);
+            if(entry != null && entry.expiresAt - System.nanoTime() > 0){
+                hits++;
+                return (T) share(entry.result);
+            }
+            if(entry != null){
+                remove(key);
+            }
+            misses++;
+            startGeneration = generation;
+        }
+
+        long replicaMark = LaggingReplicaReads.mark();
+        T result = query.get();
+        if(LaggingReplicaReads.since(replicaMark)){
+            return result; // 복제 지연이 있는 replica에서 읽었으면 캐싱하지 않는다.
+        }
+
+        if(isApproximate(result)){
+            return result;
+        }
+
+        T frozen = (T) freeze(result);
+        synchronized (this){
+            long resultWeight = weigh(frozen);
+            if(startGeneration == generation && resultWeight <= maxWeight){
+                put(key, new Entry(frozen, resultWeight, System.nanoTime() + ttlNanos));
+                return (T) share(frozen);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 회원 1명이 추가/삭제되거나, 변경 전/후 값 : 이 회원이 검색 조건에 걸리는 항목만 지운다.
+     * @param teamKnown false면 팀 이름을 모른다.(초기화되지 않은 프록시) -> 팀 이름 조건은 모두 걸리는 것으로 본다.
+     */
+    public void invalidate(String username, boolean hasTeam, boolean teamKnown, String teamName, int age){
+
+        Footprint footprint = new Footprint(username, hasTeam, teamKnown, teamName, age);
+
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            invalidateNow(footprint);
+            return;
+        }
+
+        // 커밋 전에 다른 요청이 옛 값으로 다시 캐싱했을 수 있으므로, 트랜잭션이 끝난 뒤에 한 번 더 지운다.
+        Pending pending = pending();
+        if(pending.overflowed){
+            return; // 이미 전부 지웠고, 트랜잭션이 끝나면 한 번 더 전부 지운다.
+        }
+        if(pending.footprints.size() >= MAX_PENDING_FOOTPRINTS){
+            // 대량 등록 등 : 회원마다 캐시 전체를 훑지 않고, 지금 전부 지운 뒤 더 이상 모으지 않는다.
+            pending.overflowed = true;
+            pending.footprints.clear();
+            invalidateAll();
+            return;
+        }
+        invalidateNow(footprint);
+        pending.footprints.add(footprint);
+    }
+    // 팀 이름 변경, 벌크 연산처럼 어떤 회원이 바뀌었는지 모를 때
+    public synchronized void invalidateAll(){
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized ResultCacheStats stats(){
+        return new ResultCacheStats(hits, misses, evictions, invalidations, entries.size(), weight, maxWeight);
+    }
+
+    private synchronized void invalidateNow(Footprint footprint){
+
+        generation++;
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> e = iterator.next();
+            if(e.getKey().matches(footprint)){
+                weight -= e.getValue().weight;
+                invalidations++;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 트랜잭션마다 변경된 회원 목록을 모아 두었다가, 트랜잭션이 끝나면 한 번에 다시 지운다.(회원마다 콜백을 등록하지 않는다)
+     * -> MAX_PENDING_FOOTPRINTS를 넘으면(대량 등록 등) 하나씩 비교하지 않고 전부 지운다.
+     */
+    private Pending pending(){
+
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if(pending != null){
+            return pending;
+        }
+
+        Pending created = new Pending();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberSearchResultCache.this);
+                if(created.overflowed){
+                    invalidateAll();
+                } else {
+                    created.footprints.forEach(footprint -> invalidateNow(footprint));
+                }
+            }
+        });
+        return created;
+    }
+
+    // 결과의 내용(List)을 변경할 수 없는 복사본으로 바꾼다.(Page, Slice, MemberCursorSlice는 같은 타입으로 다시 감싼다)
+    private static Object freeze(Object result){
+
+        if(result instanceof List<?> list){
+            return List.copyOf(list);
+        }
+        if(result instanceof ApproximatePage<?> page){
+            return new ApproximatePage<>(List.copyOf(page.getContent()), page.getPageable(), page.getTotalElements(), page.isTotalApproximate());
+        }
+        if(result instanceof Page<?> page){
+            return new PageImpl<>(List.copyOf(page.getContent()), page.getPageable(), page.getTotalElements());
+        }
+        if(result instanceof Slice<?> slice){
+            return new SliceImpl<>(List.copyOf(slice.getContent()), slice.getPageable(), slice.hasNext());
+        }
+        if(result instanceof MemberCursorSlice slice){
+            return new MemberCursorSlice(List.copyOf(slice.getContent()), slice.getNextCursor(), slice.isHasNext());
+        }
+        return result;
+    }
+
+    // MemberCursorSlice는 setter가 있으므로 요청마다 새로 감싼다.(내용 List는 같이 쓴다)
+    private static Object share(Object cached){
+
+        if(cached instanceof MemberCursorSlice slice){
+            return new MemberCursorSlice(slice.getContent(), slice.getNextCursor(), slice.isHasNext());
+        }
+        return cached;
+    }
+
+    private static boolean isApproximate(Object result){
+        return result instanceof ApproximatePage<?> page && page.isTotalApproximate();
+    }
+
+    private boolean isReadWriteTransaction(){
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void put(Key key, Entry entry){
+
+        remove(key);
+        entries.put(key, entry);
+        weight += entry.weight;
+
+        // 가장 오래 사용하지 않은 항목부터 제거
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            weight -= iterator.next().weight;
+            evictions++;
+            iterator.remove();
+        }
+    }
+
+    private void remove(Key key){
+        Entry removed = entries.remove(key);
+        if(removed != null){
+            weight -= removed.weight;
+        }
+    }
+
+    private static long weigh(Object result){
+
+        List<?> rows;
+        if(result instanceof Slice<?> slice){ // Page도 Slice
+            rows = slice.getContent();
+        } else if(result instanceof MemberCursorSlice cursorSlice){
+            rows = cursorSlice.getContent();
+        } else if(result instanceof List<?> list){
+            rows = list;
+        } else {
+            return RESULT_WEIGHT;
+        }
+
+        long total = RESULT_WEIGHT;
+        for (Object row : rows) {
+            total += ROW_WEIGHT;
+            if(row instanceof MemberTeamDto dto){
+                total += length(dto.getUsername()) + length(dto.getTeamName());
+            }
+        }
+        return total;
+    }
+
+    private static long length(String value){
+        return value == null ? 0 : 40 + value.length() * 2L; // String 객체 + 배열 (UTF-16 기준으로 넉넉하게)
+    }
+
+    private static class Entry {
+
+        private final Object result;
+        private final long weight;
+        private final long expiresAt;
+
+        Entry(Object result, long weight, long expiresAt) {
+            this.result = result;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // 트랜잭션 1개 동안 변경된 회원들
+    private static class Pending {
+
+        private final List<Footprint> footprints = new ArrayList<>();
+        private boolean overflowed; // true면 footprints를 모으지 않고, 트랜잭션이 끝나면 전부 지운다.
+    }
+
+    // 변경된 회원 1명의 (username, 팀 이름, 나이)
+    private static class Footprint {
+
+        private final String username;
+        private final boolean hasTeam;
+        private final boolean teamKnown;
+        private final String teamName;
+        private final int age;
+
+        Footprint(String username, boolean hasTeam, boolean teamKnown, String teamName, int age) {
+            this.username = username;
+            this.hasTeam = hasTeam;
+            this.teamKnown = teamKnown;
+            this.teamName = teamName;
+            this.age = age;
+        }
+    }
+
+    /**
+     * 캐시 키 : MemberCountCache.Key와 같이 검색 조건을 [정규화]하고, 메서드와 페이지 정보를 더한다.
+     */
+    private static class Key {
+
+        private final String method;
+        private final String username;
+        private final String teamName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+        private final List<?> page;
+
+        private Key(String method, String username, String teamName, Integer ageGoe, Integer ageLoe, List<?> page) {
+            this.method = method;
+            this.username = username;
+            this.teamName = teamName;
+            this.ageGoe = ageGoe;
+            this.ageLoe = ageLoe;
+            this.page = page;
+        }
+
+        static Key of(String method, MemberSearchCondition condition, List<?> page){
+            return new Key(
+                    method,
+                    isEmpty(condition.getUsername()) ? null : condition.getUsername(),
+                    isEmpty(condition.getTeamName()) ? null : condition.getTeamName(),
+                    condition.getAgeGoe(),
+                    condition.getAgeLoe(),
+                    page);
+        }
+
+        // 이 회원이 검색 조건에 걸리는가? (걸리면 결과 내용이나 전체 카운트가 바뀔 수 있다)
+        boolean matches(Footprint member){
+
+            if(username != null && !username.equals(member.username)){
+                return false;
+            }
+            if(teamName != null && (!member.hasTeam || (member.teamKnown && !teamName.equals(member.teamName)))){
+                return false; // 팀이 없는 회원은 팀 이름 조건에 걸리지 않는다.(left join)
+            }
+            if(ageGoe != null && member.age < ageGoe){
+                return false;
+            }
+            return ageLoe == null || member.age <= ageLoe;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return method.equals(key.method)
+                    && Objects.equals(username, key.username)
+                    && Objects.equals(teamName, key.teamName)
+                    && Objects.equals(ageGoe, key.ageGoe)
+                    && Objects.equals(ageLoe, key.ageLoe)
+                    && page.equals(key.page);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(method, username, teamName, ageGoe, ageLoe, page);
+        }
+    }
+}
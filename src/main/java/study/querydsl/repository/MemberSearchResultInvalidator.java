@@ -0,0 +1,60 @@
+package study.querydsl.repository;
+
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * Member, Team 엔티티 리스너 : 검색 결과 캐시(MemberSearchResultCache)에서 영향을 받는 항목만 지운다.
+ *
+ * 1. 회원 추가/삭제 : 그 회원의 (username, 팀 이름, 나이)가 걸리는 검색 결과
+ * 2. 회원 변경 : 변경 전 값(Member.synced~)과 변경 후 값 둘 다
+ * 3. 팀 변경(이름 변경 등) : 결과에 팀 이름이 들어 있으므로 전부 지운다.
+ *
+ * 팀 이름을 알려고 팀 프록시를 초기화하지 않는다.(flush 도중에 조회 쿼리를 날리지 않도록)
+ * -> 초기화되지 않은 팀이라면, 팀 이름 조건은 모두 걸리는 것으로 보고 지운다.
+ */
+@RequiredArgsConstructor
+public class MemberSearchResultInvalidator {
+
+    private final MemberSearchResultCache resultCache;
+
+    @PostPersist
+    @PostRemove
+    public void onInsertOrDelete(Object entity){
+
+        if(entity instanceof Member member){
+            Integer age = member.syncedAge();
+            if(age != null){ // 삭제 : DB에 들어 있던 값
+                invalidate(member.syncedUsername(), member.syncedTeam(), age);
+            }
+            invalidate(member.getUsername(), member.getTeam(), member.getAge());
+        }
+        // 새 팀은 회원이 없으므로 검색 결과에 영향이 없다. 팀 삭제는 회원이 먼저 빠져야 한다.
+    }
+
+    @PostUpdate
+    public void onUpdate(Object entity){
+
+        if(entity instanceof Member member){
+            if(member.syncedAge() != null){
+                invalidate(member.syncedUsername(), member.syncedTeam(), member.syncedAge());
+            }
+            invalidate(member.getUsername(), member.getTeam(), member.getAge());
+        }
+        else {
+            resultCache.invalidateAll();
+        }
+    }
+
+    private void invalidate(String username, Team team, int age){
+
+        boolean teamKnown = team != null && Hibernate.isInitialized(team);
+        resultCache.invalidate(username, team != null, teamKnown, teamKnown ? team.getName() : null, age);
+    }
+}
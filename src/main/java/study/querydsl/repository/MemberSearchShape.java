@@ -0,0 +1,39 @@
+package study.querydsl.repository;
+
+
+import study.querydsl.dto.MemberSearchCondition;
+
+import static org.apache.logging.log4j.util.Strings.isEmpty;
+
+/**
+ * 검색 조건의 [모양] : username, teamName, ageGoe, ageLoe 중 어떤 조건이 들어왔는지를 비트로 나타낸다.
+ * -> 값이 달라도 모양이 같으면 JPQL은 똑같다. 모양은 2^4 = 16가지 뿐이다.
+ * -> usernameEq(), teamNameEq() 처럼 빈 문자열은 조건이 없는 것으로 본다.
+ */
+public final class MemberSearchShape {
+
+    public static final int USERNAME = 1;
+    public static final int TEAM_NAME = 1 << 1;
+    public static final int AGE_GOE = 1 << 2;
+    public static final int AGE_LOE = 1 << 3;
+
+    public static final int COUNT = 1 << 4;
+
+    private MemberSearchShape() {
+    }
+
+    public static int of(MemberSearchCondition condition){
+
+        int shape = 0;
+        if(!isEmpty(condition.getUsername())) shape |= USERNAME;
+        if(!isEmpty(condition.getTeamName())) shape |= TEAM_NAME;
+        if(condition.getAgeGoe() != null) shape |= AGE_GOE;
+        if(condition.getAgeLoe() != null) shape |= AGE_LOE;
+        return shape;
+    }
+
+    public static boolean has(int shape, int condition){
+        return (shape & condition) != 0;
+    }
+
+}
@@ -0,0 +1,151 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * Pageable의 Sort -> Querydsl OrderSpecifier 변환
+ *
+ * 1. 정렬할 수 있는 속성은 id, username, age, teamName 뿐이다.(화이트리스트)
+ * 2. 인덱스로 정렬할 수 있으면 깊이 제한 없이 허용한다.
+ *    -> id는 PK 인덱스가 항상 있다.
+ *    -> username, age는 indexed 프로필(db/member-indexes.sql)일 때만 인덱스가 있으므로, 실제 DB의 인덱스를 확인한다.
+ * 3. 인덱스를 탈 수 없는 정렬(filesort) : 인덱스가 없는 username/age, join한 team 기준인 teamName
+ *    -> offset + size가 maxTopN 이하일 때만 허용한다. DB가 상위 N개만 유지하면서 정렬할 수 있는 범위
+ * 4. 정렬 값이 같은 row들의 순서가 매번 달라지지 않도록, 항상 member.id를 마지막 정렬 기준으로 붙인다.
+ * -> 허용하지 않는 정렬은 InvalidPageRequestException(400)
+ */
+@Component
+public class MemberSortSupport {
+
+    private static final Map<String, ComparableExpressionBase<?>> MEMBER_COLUMNS = Map.of(
+            "id", member.id,
+            "memberId", member.id,
+            "username", member.username,
+            "age", member.age);
+
+    private static final Map<String, ComparableExpressionBase<?>> TOP_N_ONLY = Map.of(
+            "teamName", team.name);
+
+    private final long maxTopN;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // member 테이블 인덱스의 첫 번째 컬럼들(소문자) : 처음 정렬할 때 1번만 확인한다.(ddl-auto, indexed 프로필 스크립트가 끝난 뒤)
+    private volatile Set<String> leadingIndexColumns;
+
+    public MemberSortSupport(@Value("${member.sort.max-top-n:1000}") long maxTopN, JdbcTemplate jdbcTemplate){
+        this.maxTopN = maxTopN;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public OrderSpecifier<?>[] orderBy(Pageable pageable){
+
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        boolean hasId = false;
+
+        for (Sort.Order order : pageable.getSort()) {
+
+            ComparableExpressionBase<?> path = MEMBER_COLUMNS.get(order.getProperty());
+            if(path == null){
+                path = TOP_N_ONLY.get(order.getProperty());
+            }
+            if(path == null){
+                throw new InvalidPageRequestException("정렬할 수 없는 속성입니다. sort = " + order.getProperty()
+                        + ", 가능한 속성 = " + MEMBER_COLUMNS.keySet() + TOP_N_ONLY.keySet());
+            }
+
+            if(!isIndexed(path) && pageable.getOffset() + pageable.getPageSize() > maxTopN){
+                throw new InvalidPageRequestException(order.getProperty() + " 정렬은 앞쪽 " + maxTopN + "건까지만 조회할 수 있습니다.");
+            }
+
+            hasId |= path == member.id;
+            orders.add(toOrderSpecifier(order, path));
+        }
+
+        if(!hasId){
+            orders.add(member.id.asc()); // 정렬 값이 같을 때의 순서를 고정(tiebreaker)
+        }
+        return orders.toArray(new OrderSpecifier<?>[0]);
+    }
+
+    private boolean isIndexed(ComparableExpressionBase<?> path){
+
+        if(path == member.id){
+            return true; // PK
+        }
+        if(path == member.username){
+            return leadingIndexColumns().contains("username");
+        }
+        if(path == member.age){
+            return leadingIndexColumns().contains("age");
+        }
+        return false; // teamName
+    }
+
+    private Set<String> leadingIndexColumns(){
+
+        Set<String> columns = leadingIndexColumns;
+        if(columns == null){
+            columns = jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+                DatabaseMetaData metaData = connection.getMetaData();
+                String table = metaData.storesUpperCaseIdentifiers() ? "MEMBER" : "member";
+
+                Set<String> leading = new HashSet<>();
+                try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+                    while (rs.next()) {
+                        String column = rs.getString("COLUMN_NAME");
+                        if(rs.getShort("ORDINAL_POSITION") == 1 && column != null){
+                            leading.add(column.toLowerCase(Locale.ROOT));
+                        }
+                    }
+                }
+                return leading;
+            });
+            leadingIndexColumns = columns;
+        }
+        return columns;
+    }
+
+    // team 기준 정렬이 있으면 join이 필요하다.
+    public boolean sortsByTeam(Pageable pageable){
+
+        for (Sort.Order order : pageable.getSort()) {
+            if(TOP_N_ONLY.containsKey(order.getProperty())){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private OrderSpecifier<?> toOrderSpecifier(Sort.Order order, ComparableExpressionBase<?> path){
+
+        OrderSpecifier<?> orderSpecifier = order.isAscending() ? path.asc() : path.desc();
+
+        switch (order.getNullHandling()) {
+            case NULLS_FIRST: return orderSpecifier.nullsFirst();
+            case NULLS_LAST: return orderSpecifier.nullsLast();
+            default: return orderSpecifier;
+        }
+    }
+
+}
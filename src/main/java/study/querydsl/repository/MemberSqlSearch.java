@@ -0,0 +1,143 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLSerializer;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import static study.querydsl.sql.SQMember.member;
+import static study.querydsl.sql.SQTeam.team;
+
+/**
+ * search()의 JDBC 버전 (member.search.engine: SQL)
+ *
+ * JPA 버전(MemberSearchQueryCache)은 JPQL -> 하이버네이트의 SQL 변환 -> Object[] -> DTO 순서로 처리된다.
+ * -> 회원, 팀 2개 테이블 조인일 뿐이므로, querydsl-sql(SQMember, SQTeam)로 [SQL]을 직접 만들고
+ *    JdbcTemplate으로 실행해서 ResultSet에서 바로 MemberTeamDto를 만든다.
+ * -> SQL 문자열은 MemberSearchQueryCache와 같이 조건의 모양(MemberSearchShape) 별로 1번만 만든다.
+ *
+ * 주의) 하이버네이트를 거치지 않으므로 영속성 컨텍스트에만 있는(아직 flush 안 된) 변경은 보이지 않는다.
+ * -> 쓰기 트랜잭션 안에서 호출되면 먼저 flush 한다.(JPQL 조회 시 하이버네이트가 하는 auto flush와 같은 효과)
+ */
+@Component
+public class MemberSqlSearch {
+
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private static final RowMapper<MemberTeamDto> ROW_MAPPER = (rs, rowNum) -> new MemberTeamDto(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getInt(3),
+            rs.getObject(4, Long.class), // 팀이 없으면 null
+            rs.getString(5));
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final Configuration configuration;
+
+    // index = MemberSearchShape
+    private final AtomicReferenceArray<CompiledSql> compiledQueries = new AtomicReferenceArray<>(MemberSearchShape.COUNT);
+
+    public MemberSqlSearch(EntityManager entityManager, JdbcTemplate jdbcTemplate){
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.configuration = new Configuration(H2Templates.builder().build());
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition){
+
+        if(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            entityManager.flush();
+        }
+
+        CompiledSql compiled = compiledSql(MemberSearchShape.of(condition));
+
+        Object[] args = new Object[compiled.bindings.size()];
+        for(int i = 0; i < args.length; i++){
+            args[i] = compiled.bindings.get(i).apply(condition); // 값만 바인딩
+        }
+
+        return jdbcTemplate.query(compiled.sql, ROW_MAPPER, args);
+    }
+
+    private CompiledSql compiledSql(int shape){
+
+        CompiledSql compiled = compiledQueries.get(shape);
+        if(compiled == null){
+            compiledQueries.compareAndSet(shape, null, compile(shape));
+            compiled = compiledQueries.get(shape);
+        }
+        return compiled;
+    }
+
+    /**
+     * 모양에 해당하는 조건만 where에 넣어서 SQL 문자열을 만든다.
+     * -> Param은 SQL에 ? 로 들어가고, where에 등장하는 순서대로 bindings를 쌓는다.
+     * -> select 컬럼 순서 = ROW_MAPPER의 컬럼 번호
+     */
+    private CompiledSql compile(int shape){
+
+        SQLQuery<?> query = new SQLQuery<Void>(configuration)
+                .select(
+                        member.memberId,
+                        member.username,
+                        member.age,
+                        team.teamId,
+                        team.name)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId));
+
+        List<Function<MemberSearchCondition, Object>> bindings = new ArrayList<>();
+
+        if(MemberSearchShape.has(shape, MemberSearchShape.USERNAME)){
+            query.where(member.username.eq(USERNAME));
+            bindings.add(MemberSearchCondition::getUsername);
+        }
+        if(MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)){
+            query.where(team.name.eq(TEAM_NAME));
+            bindings.add(MemberSearchCondition::getTeamName);
+        }
+        if(MemberSearchShape.has(shape, MemberSearchShape.AGE_GOE)){
+            query.where(member.age.goe(AGE_GOE));
+            bindings.add(MemberSearchCondition::getAgeGoe);
+        }
+        if(MemberSearchShape.has(shape, MemberSearchShape.AGE_LOE)){
+            query.where(member.age.loe(AGE_LOE));
+            bindings.add(MemberSearchCondition::getAgeLoe);
+        }
+
+        SQLSerializer serializer = new SQLSerializer(configuration);
+        serializer.serialize(query.getMetadata(), false);
+
+        return new CompiledSql(serializer.toString(), List.copyOf(bindings));
+    }
+
+    private static class CompiledSql {
+
+        private final String sql;
+        private final List<Function<MemberSearchCondition, Object>> bindings;
+
+        CompiledSql(String sql, List<Function<MemberSearchCondition, Object>> bindings) {
+            this.sql = sql;
+            this.bindings = bindings;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.repository;
+
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.OptionalLong;
+
+/**
+ * COUNT(*) 대신 DB가 관리하는 테이블 통계(예상 row 수)를 읽어 온다.
+ * -> 정확한 값은 아니지만, 테이블 전체를 세지 않으므로 row 수와 상관없이 빠르다.
+ * -> H2 기준 (INFORMATION_SCHEMA.TABLES.ROW_COUNT_ESTIMATE)
+ *
+ * Q. 왜 EntityManager가 아니라 JdbcTemplate으로 조회하는가?
+ * A. 통계 조회가 실패해도(다른 DB 등) 현재 JPA 트랜잭션이 rollback-only로 표시되지 않게 하기 위해서
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberTableStatistics {
+
+    private static final String ROW_COUNT_ESTIMATE =
+            "select row_count_estimate from information_schema.tables where upper(table_name) = 'MEMBER'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OptionalLong estimateMemberRows(){
+
+        try {
+            Long estimate = jdbcTemplate.queryForObject(ROW_COUNT_ESTIMATE, Long.class);
+            return estimate == null ? OptionalLong.empty() : OptionalLong.of(estimate);
+        } catch (DataAccessException e) {
+            log.debug("테이블 통계를 읽을 수 없습니다.", e);
+            return OptionalLong.empty();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberSyncRow;
+import study.querydsl.dto.UpsertResult;
+
+import java.util.List;
+
+
+// MemberRepositoryCustom과 같은 [사용자 정의 인터페이스] : 구현체는 MemberUpsertRepositoryImpl
+public interface MemberUpsertRepository {
+
+    // username이 같은 회원이 있으면 age, team을 수정하고, 없으면 새로 등록한다.
+    UpsertResult upsertByUsername(List<MemberSyncRow> rows);
+
+}
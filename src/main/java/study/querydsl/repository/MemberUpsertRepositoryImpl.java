@@ -0,0 +1,232 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSyncRow;
+import study.querydsl.dto.UpsertResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * username 기준 batch upsert
+ *
+ * findByUsername() + save()를 row마다 하면 왕복이 2번이고, 동시에 같은 username이 들어오면 중복 insert가 생긴다.
+ * -> MERGE 문 1개가 [조회 + insert/update]를 DB 안에서 한 번에 처리하고,
+ *    batchSize 개의 MERGE를 JDBC batch 1번으로 보낸다.
+ * -> username은 unique가 아니므로(가입, import는 중복을 허용) 중복은 스키마가 아니라 여기서 막는다.
+ *    1) batch 안의 같은 username은 마지막 row 1개만 MERGE 한다.
+ *    2) upsert 트랜잭션끼리는 커밋될 때까지 순서대로 실행한다.(upsertLock) 먼저 커밋된 회원을 다음 upsert가 update 한다.
+ *    3) 운영 DB에 username unique 인덱스가 있어서, 다른 인스턴스가 먼저 넣은 username 때문에
+ *       insert가 DuplicateKeyException으로 실패하면, 그 batch를 다시 실행한다.(이제는 matched -> update)
+ * -> username이 null인 row는 받지 않는다.(MERGE ON username = null은 매칭되지 않아 항상 insert가 된다.)
+ *
+ * 1. inserted/updated 개수 : batch 마다 이미 있는 username을 1번 조회해서 나눈다.
+ * 2. 새 회원의 id : 엔티티와 같은 id 생성기(pooled, allocationSize 100)에서 받는다.
+ *    -> SQL에서 next value for member_seq를 바로 쓰면, row 1개마다 id 100개 구간을 통째로 써 버린다.
+ *    -> 조회와 MERGE 사이에 다른 곳에서 같은 username을 넣었다면 id가 null이므로 시퀀스에서 받는다.(coalesce)
+ *
+ * MERGE는 영속성 컨텍스트를 거치지 않으므로(벌크 연산과 같다)
+ * -> 실행 전에 flush(), 실행 후에 clear(), [전체 카운트]/검색 결과 캐시도 직접 비운다.
+ * -> 엔티티 리스너도 호출되지 않으므로, 회원이 빠지거나 들어간 팀의 TeamStats만 다시 집계한다.
+ * -> 2차 캐시도 모르므로, Member와 Team.members 캐시를 비운다.
+ *    커밋 전에 다른 트랜잭션이 옛 row를 읽어서 다시 캐싱할 수 있으므로, 커밋된 뒤(afterCommit)에 한 번 더 비운다.
+ */
+public class MemberUpsertRepositoryImpl implements MemberUpsertRepository {
+
+    private static final String MERGE_BY_USERNAME =
+            "merge into member m " +
+            "using (select cast(? as varchar(255)) as username, cast(? as integer) as age, cast(? as bigint) as team_id) s " +
+            "on m.username = s.username " +
+            "when matched then update set m.age = s.age, m.team_id = s.team_id " +
+            "when not matched then insert (member_id, username, age, team_id) " +
+            "values (coalesce(cast(? as bigint), next value for member_seq), s.username, s.age, s.team_id)";
+
+    private static final String TEAM_MEMBERS_ROLE = Team.class.getName() + ".members";
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final MemberCountCache countCache;
+    private final TeamStatsMaintainer teamStats;
+    private final MemberSearchResultCache resultCache;
+    private final int batchSize;
+
+    // upsert 트랜잭션이 끝날 때(afterCompletion)까지 잡고 있는다. -> 조회와 MERGE 사이에 다른 upsert가 같은 username을 넣지 못한다.
+    private final ReentrantLock upsertLock = new ReentrantLock();
+
+    public MemberUpsertRepositoryImpl(EntityManager em,
+                                      JdbcTemplate jdbcTemplate,
+                                      MemberCountCache countCache,
+                                      TeamStatsMaintainer teamStats,
+                                      MemberSearchResultCache resultCache,
+                                      @Value("${member.upsert.batch-size:1000}") int batchSize){
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.jdbcTemplate = jdbcTemplate;
+        this.countCache = countCache;
+        this.teamStats = teamStats;
+        this.resultCache = resultCache;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public UpsertResult upsertByUsername(List<MemberSyncRow> rows) {
+
+        for (MemberSyncRow row : rows) {
+            if(row.getUsername() == null){
+                throw new IllegalArgumentException("username이 없는 row는 upsert 할 수 없습니다. : " + row);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        lockUntilCompletion();
+        em.flush();
+
+        long batches = 0;
+        long inserted = 0;
+        long updated = 0;
+        Set<Long> touchedTeamIds = new HashSet<>(); // 회원이 빠지거나 들어간 팀
+
+        for(int from = 0; from < rows.size(); from += batchSize){
+
+            List<MemberSyncRow> rowsInBatch = rows.subList(from, Math.min(from + batchSize, rows.size()));
+
+            // 같은 username은 마지막 row만 반영한다.(앞의 row는 덮어써지므로 update로 센다.)
+            Map<String, MemberSyncRow> batch = new LinkedHashMap<>();
+            rowsInBatch.forEach(row -> batch.put(row.getUsername(), row));
+            updated += rowsInBatch.size() - batch.size();
+            Set<String> usernames = batch.keySet();
+
+            List<Tuple> found = queryFactory
+                    .select(member.username, member.team.id)
+                    .from(member)
+                    .where(member.username.in(usernames))
+                    .fetch();
+
+            Set<String> existing = new HashSet<>();
+            for (Tuple tuple : found) {
+                existing.add(tuple.get(member.username));
+                touchedTeamIds.add(tuple.get(member.team.id));
+            }
+
+            List<Object[]> args = new ArrayList<>(batch.size());
+            Map<String, Long> newIds = new HashMap<>(); // insert 할 username -> 새 id
+            for (MemberSyncRow row : batch.values()) {
+
+                Long newId = null;
+                if(!existing.contains(row.getUsername())){ // 처음 보는 username -> insert
+                    newId = nextMemberId();
+                    newIds.put(row.getUsername(), newId);
+                    inserted++;
+                }
+                else{
+                    updated++;
+                }
+                args.add(new Object[]{row.getUsername(), row.getAge(), row.getTeamId(), newId});
+                touchedTeamIds.add(row.getTeamId());
+            }
+
+            try {
+                jdbcTemplate.batchUpdate(MERGE_BY_USERNAME, args);
+            } catch (DuplicateKeyException e) {
+                long raced = findRaced(newIds, touchedTeamIds);
+                inserted -= raced;
+                updated += raced;
+                jdbcTemplate.batchUpdate(MERGE_BY_USERNAME, args);
+            }
+            batches++;
+        }
+
+        teamStats.refresh(touchedTeamIds);
+        em.clear();
+        evictSecondLevelCache(); // 이 트랜잭션 안의 조회용
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictSecondLevelCache();
+                }
+            });
+        }
+        countCache.invalidateAll();
+        resultCache.invalidateAll();
+
+        return new UpsertResult(batches, inserted, updated, System.currentTimeMillis() - start);
+    }
+
+    private void lockUntilCompletion(){
+
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            throw new IllegalStateException("upsert는 트랜잭션 안에서만 실행할 수 있습니다.");
+        }
+
+        // 같은 트랜잭션에서 다시 호출하면 재진입(ReentrantLock)이므로, 잡은 횟수만큼 풀어 준다.
+        upsertLock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                upsertLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * 조회와 MERGE 사이에 다른 트랜잭션이 먼저 넣은 username 개수 (insert 하려던 id와 다른 id로 이미 있다)
+     * -> 그 회원들은 update가 되므로, 원래 팀의 TeamStats도 다시 집계한다.
+     */
+    private long findRaced(Map<String, Long> newIds, Set<Long> touchedTeamIds){
+
+        List<Tuple> found = queryFactory
+                .select(member.username, member.id, member.team.id)
+                .from(member)
+                .where(member.username.in(newIds.keySet()))
+                .fetch();
+
+        long raced = 0;
+        for (Tuple tuple : found) {
+            if(!tuple.get(member.id).equals(newIds.get(tuple.get(member.username)))){
+                touchedTeamIds.add(tuple.get(member.team.id));
+                raced++;
+            }
+        }
+        return raced;
+    }
+
+    private void evictSecondLevelCache(){
+        em.getEntityManagerFactory().getCache().evict(Member.class);
+        em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache().evictCollectionData(TEAM_MEMBERS_ROLE);
+    }
+
+    private Long nextMemberId(){
+
+        SharedSessionContractImplementor session = em.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator generator = session.getFactory()
+                .getMappingMetamodel()
+                .getEntityDescriptor(Member.class)
+                .getIdentifierGenerator();
+        return (Long) generator.generate(session, null);
+    }
+}
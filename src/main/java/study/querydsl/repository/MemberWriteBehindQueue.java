@@ -0,0 +1,202 @@
+package study.querydsl.repository;
+
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 회원 가입 write-behind 큐 (member.write-behind.enabled=true 일 때만 등록)
+ *
+ * 요청마다 persist + 커밋(트랜잭션 1개)을 하지 않고, 요청은 큐에 넣기만 한다.
+ * -> writer 쓰레드들이 큐에서 최대 batchSize 개씩 꺼내서 트랜잭션 1개로 저장한다.(JDBC batch insert)
+ * -> DB 왕복 횟수가 요청 수가 아니라 batch 수에 비례한다.
+ *
+ * 1. 요청마다 CompletableFuture를 돌려주고, 해당 batch가 커밋되면 회원 id로 완료한다.(실패하면 예외로 완료)
+ * 2. batch가 실패하면 반으로 나눠서 다시 저장한다. -> 문제가 있는 요청만 예외로 완료되고, 나머지는 저장된다.
+ * 3. 큐가 가득 차면 offerTimeout 동안만 기다리고 RejectedExecutionException (backpressure)
+ * 4. 종료 시에는 새 요청을 받지 않고, 큐에 남은 요청을 모두 저장한 뒤 종료한다.
+ *    -> [받는 중인지 확인 + 큐에 넣기]와 [받기 중단]은 lock으로 나눈다.(writer가 끝난 뒤에 들어온 요청이 완료되지 않는 일이 없도록)
+ * 5. writer 쓰레드는 빈 초기화가 끝난 뒤(@PostConstruct) 데몬 쓰레드로 시작한다.(JVM 종료를 막지 않는다)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.write-behind.enabled", havingValue = "true")
+public class MemberWriteBehindQueue {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<PendingWrite> queue;
+    private final int batchSize;
+    private final Duration offerTimeout;
+    private final int writerCount;
+    private final List<Thread> writers = new ArrayList<>();
+
+    private volatile boolean accepting = true;
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock(); // 큐에 넣기(read) <-> 받기 중단(write)
+
+    public MemberWriteBehindQueue(EntityManager em,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${member.write-behind.capacity:10000}") int capacity,
+                                  @Value("${member.write-behind.batch-size:500}") int batchSize,
+                                  @Value("${member.write-behind.writers:2}") int writerCount,
+                                  @Value("${member.write-behind.offer-timeout:100ms}") Duration offerTimeout){
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.offerTimeout = offerTimeout;
+        this.writerCount = writerCount;
+    }
+
+    @PostConstruct
+    public void start(){
+
+        for(int i = 0; i < writerCount; i++){
+            Thread writer = new Thread(this::drainLoop, "member-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    public CompletableFuture<Long> enqueue(Member member, Long teamId){
+
+        PendingWrite pending = new PendingWrite(member, teamId);
+
+        acceptLock.readLock().lock();
+        try {
+            if(!accepting){
+                throw new RejectedExecutionException("종료 중이라 회원 가입 요청을 받을 수 없습니다.");
+            }
+            if(!queue.offer(pending, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)){
+                throw new RejectedExecutionException("회원 가입 요청이 너무 많습니다. 잠시 후 다시 시도해 주세요.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("회원 가입 요청을 큐에 넣는 도중 인터럽트 되었습니다.", e);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        return pending.future;
+    }
+
+    public int pending(){
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+
+        // 새 요청은 받지 않는다. -> 큐에 넣는 중인 요청이 끝날 때까지 기다리므로, 이후에는 큐에 새로 들어오는 요청이 없다.
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(30)); // 큐에 남은 요청을 저장할 때까지 기다린다.
+        }
+
+        List<PendingWrite> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(pending -> pending.future.completeExceptionally(
+                new RejectedExecutionException("종료 시간 안에 저장하지 못했습니다.")));
+    }
+
+    private void drainLoop(){
+
+        while (accepting || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(first == null){
+                    continue;
+                }
+
+                List<PendingWrite> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * batch 1개 = 트랜잭션 1개
+     * -> 실패하면 반으로 나눠서 각각 다시 저장한다.(잘못된 요청 1개를 찾는 데 트랜잭션 약 2 * log2(batchSize)개)
+     * -> 롤백된 엔티티에는 id, 팀, 동기화 상태가 남아 있으므로, 저장할 때마다 요청 값으로 새 엔티티를 만든다.
+     */
+    private void write(List<PendingWrite> batch){
+
+        List<Member> members = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (PendingWrite pending : batch) {
+                    Member member = new Member(pending.username, pending.age);
+                    if(pending.teamId != null){
+                        member.changeTeam(em.getReference(Team.class, pending.teamId));
+                    }
+                    em.persist(member);
+                    members.add(member);
+                }
+                em.flush();
+                em.clear();
+            });
+        } catch (RuntimeException e) {
+            if(batch.size() == 1){
+                log.warn("회원 저장에 실패했습니다. username={}", batch.get(0).username, e);
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            log.debug("회원 {}명 저장에 실패해서 나눠서 다시 저장합니다.", batch.size(), e);
+            int half = batch.size() / 2;
+            write(batch.subList(0, half));
+            write(batch.subList(half, batch.size()));
+            return;
+        }
+
+        for(int i = 0; i < batch.size(); i++){
+            batch.get(i).future.complete(members.get(i).getId());
+        }
+    }
+
+    // 엔티티가 아니라 요청 값을 들고 있는다.(실패한 batch를 다시 저장할 수 있도록)
+    private static class PendingWrite {
+
+        private final String username;
+        private final int age;
+        private final Long teamId;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        PendingWrite(Member member, Long teamId) {
+            this.username = member.getUsername();
+            this.age = member.getAge();
+            this.teamId = teamId;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원들의 팀 프록시를 batchSize 개씩 IN 쿼리로 한 번에 초기화한다.
+ *
+ * 회원 N명을 조회한 뒤 getTeam().getName()을 호출하면, 서로 다른 팀 수만큼 SELECT가 날라간다.(N+1 문제, QuerydslBasicTest.fetchJoinNo 참조)
+ * -> 아직 초기화되지 않은 팀 id만 모아서 "where team.id in (...)"로 조회하면, 팀들이 영속성 컨텍스트에 올라온다.
+ * -> 그 다음 프록시에 접근하면 DB가 아니라 영속성 컨텍스트에서 꺼내므로, 쿼리 수 = 1 + (팀 수 / batchSize)
+ */
+@Component
+public class TeamBatchLoader {
+
+    private final JPAQueryFactory queryFactory;
+
+    public TeamBatchLoader(EntityManager em){
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    public void load(Collection<Member> members, int batchSize){
+
+        if(batchSize <= 0){
+            throw new IllegalArgumentException("batchSize는 1 이상이어야 합니다. batchSize = " + batchSize);
+        }
+
+        Set<Long> pendingTeamIds = new LinkedHashSet<>();
+        for (Member member : members) {
+            Team memberTeam = member.getTeam();
+            if(memberTeam != null && !Hibernate.isInitialized(memberTeam)){
+                pendingTeamIds.add(memberTeam.getId()); // 프록시에서 id를 꺼내도 초기화되지 않는다.
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(pendingTeamIds);
+        for(int from = 0; from < ids.size(); from += batchSize){
+            queryFactory
+                    .selectFrom(team)
+                    .where(team.id.in(ids.subList(from, Math.min(from + batchSize, ids.size()))))
+                    .fetch();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package study.querydsl.repository;
+
+// 회원 목록을 조회할 때, 지연 로딩인 Member.team을 어떻게 가져올지 (MemberJpaRepository.findAll(TeamFetchMode))
+public enum TeamFetchMode {
+
+    LAZY,  // 팀에 처음 접근할 때 로딩 : hibernate.default_batch_fetch_size 개씩 IN 쿼리로 모아서 가져온다.
+    BATCH, // 회원 조회 직후 TeamBatchLoader로 팀을 batchSize 개씩 IN 쿼리로 미리 가져온다.
+    JOIN   // fetch join으로 회원과 팀을 쿼리 1번에 가져온다.(회원 수만큼 팀 컬럼이 중복된다)
+
+}
@@ -0,0 +1,50 @@
+package study.querydsl.repository;
+
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import study.querydsl.entity.Member;
+
+import java.util.Objects;
+
+/**
+ * Member 엔티티 리스너 : 회원이 추가/수정/삭제될 때 TeamStats를 증분 갱신한다.
+ *
+ * @PostUpdate에는 변경 전 값이 없으므로, Member가 마지막으로 DB와 맞춰진 (팀, 나이)를 사용한다.(Member.markSynced)
+ * 주의) MemberCountCacheInvalidator와 마찬가지로 벌크 연산에서는 호출되지 않는다. -> MemberBulkOperations가 바뀐 팀만 TeamStatsMaintainer.refresh()
+ */
+@RequiredArgsConstructor
+public class TeamStatsListener {
+
+    private final TeamStatsMaintainer maintainer;
+
+    @PostPersist
+    public void onPersist(Member member){
+        maintainer.addMember(member.getTeamId(), member.getAge());
+    }
+
+    @PostUpdate
+    public void onUpdate(Member member){
+
+        // username만 바뀐 경우에는 갱신할 필요가 없다.
+        if(member.syncedAge() == null
+                || !Objects.equals(member.syncedTeamId(), member.getTeamId())
+                || member.syncedAge() != member.getAge()){
+
+            if(member.syncedAge() != null){
+                maintainer.removeMember(member.syncedTeamId(), member.syncedAge());
+            }
+            maintainer.addMember(member.getTeamId(), member.getAge());
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Member member){
+
+        if(member.syncedAge() != null){ // 삭제되는 row에 들어 있던 값
+            maintainer.removeMember(member.syncedTeamId(), member.syncedAge());
+        }
+    }
+}
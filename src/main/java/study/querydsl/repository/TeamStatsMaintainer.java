@@ -0,0 +1,238 @@
+package study.querydsl.repository;
+
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * TeamStats 증분 갱신 (JDBC)
+ *
+ * Q. 왜 EntityManager가 아니라 JdbcTemplate으로 갱신하는가?
+ * A. 엔티티 리스너는 flush 도중에 호출된다. 이 때 JPQL을 실행하면 다시 flush가 일어날 수 있으므로,
+ *    같은 트랜잭션(커넥션)을 쓰는 JdbcTemplate으로 갱신한다.
+ *    -> EntityManager는 커밋 직전에만 꺼내 쓰므로(ObjectProvider), 엔티티 리스너에 주입할 때 순환 참조도 생기지 않는다.
+ *
+ * 회원마다 바로 갱신하지 않고, 트랜잭션마다 팀별 변화량(회원 수, 나이 합, 최대 나이)을 모아 두었다가
+ * 커밋 직전(beforeCommit)에 팀 수만큼의 batch update 1번으로 반영한다.
+ * -> 회원 1000명을 등록하는 batch(MemberImporter, MemberWriteBehindQueue)도 팀 row 갱신은 팀 수만큼만 일어난다.
+ * 1. 통계 row가 없는 팀은 먼저 row를 만든다. 다른 트랜잭션이 같은 팀 row를 먼저 만들었으면(DuplicateKeyException) 다시 시도한다.
+ * 2. 최대 나이 이상인 회원이 빠진 팀은 커밋 전에 최대 나이를 다시 계산한다.(조회는 통계 row만 읽는다)
+ *
+ * 벌크 연산, MERGE처럼 영속성 컨텍스트를 거치지 않는 변경은 refresh()/rebuild()로 다시 계산한다.
+ * -> 다시 계산한 팀의 모아 둔 변화량은 이미 회원 테이블에 반영되어 있으므로 버린다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamStatsMaintainer {
+
+    // 통계 row가 없으면 빈 row를 만든다. (이미 있으면 아무것도 하지 않으므로 다시 실행해도 된다)
+    private static final String ENSURE_ROW =
+            "merge into team_stats t " +
+            "using (select cast(? as bigint) as team_id) s " +
+            "on t.team_id = s.team_id " +
+            "when not matched then insert (team_id, member_count, age_sum, max_age, max_stale) values (s.team_id, 0, 0, 0, false)";
+
+    // 빠지는 회원의 나이가 (변경 전) 최대 나이 이상이면, 최대 나이를 다시 계산해야 한다.
+    private static final String APPLY_DELTA =
+            "update team_stats set member_count = member_count + ?, age_sum = age_sum + ?, " +
+            "max_stale = (max_stale or coalesce(cast(? as integer) >= max_age, false)), " +
+            "max_age = greatest(max_age, coalesce(cast(? as integer), max_age)) " +
+            "where team_id = ?";
+
+    private static final String REFRESH_MAX_AGE =
+            "update team_stats set max_age = coalesce((select max(age) from member where team_id = ?), 0), max_stale = false " +
+            "where team_id = ? and max_stale";
+
+    // row를 지우고 다시 넣지 않고 그 자리에서 갱신한다. -> 동시에 APPLY_DELTA 하는 트랜잭션은 row lock을 기다렸다가 그 위에 더한다.
+    private static final String REFRESH_ONE =
+            "update team_stats set " +
+            "member_count = (select count(*) from member where team_id = ?), " +
+            "age_sum = coalesce((select sum(age) from member where team_id = ?), 0), " +
+            "max_age = coalesce((select max(age) from member where team_id = ?), 0), max_stale = false " +
+            "where team_id = ?";
+
+    private static final String DELETE_ALL = "delete from team_stats";
+
+    private static final String INSERT_ALL =
+            "insert into team_stats (team_id, member_count, age_sum, max_age, max_stale) " +
+            "select team_id, count(*), sum(age), max(age), false from member where team_id is not null group by team_id";
+
+    private static final ThreadLocal<Boolean> SUSPENDED = ThreadLocal.withInitial(() -> false);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<EntityManager> entityManager;
+
+    public void addMember(Long teamId, int age){
+        if(teamId != null && !isSuspended()){
+            record(teamId, delta -> delta.add(age));
+        }
+    }
+
+    public void removeMember(Long teamId, int age){
+        if(teamId != null && !isSuspended()){
+            record(teamId, delta -> delta.remove(age));
+        }
+    }
+
+    // 주어진 팀들만 회원 테이블에서 다시 집계 (MERGE, 벌크 연산 등으로 회원이 어느 팀에서 어느 팀으로 갔는지 알 때)
+    // -> 팀 id 순서로 갱신한다.(동시에 refresh 하는 트랜잭션끼리 row lock 순서가 같도록)
+    public void refresh(Collection<Long> teamIds){
+
+        List<Long> sorted = teamIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .toList();
+
+        if(!sorted.isEmpty()){
+            Map<Long, Delta> pending = pendingDeltas();
+            if(pending != null){
+                sorted.forEach(pending::remove);
+            }
+            ensureRows(sorted.stream().map(teamId -> new Object[]{teamId}).toList());
+            jdbcTemplate.batchUpdate(REFRESH_ONE, sorted.stream()
+                    .map(teamId -> new Object[]{teamId, teamId, teamId, teamId})
+                    .toList());
+        }
+    }
+
+    // 전체 다시 집계 : O(회원 수) -> 대량 적재(MemberBulkLoader) 후, 관리용(TeamStatsRepository.rebuild)으로만 사용
+    public void rebuild(){
+
+        Map<Long, Delta> pending = pendingDeltas();
+        if(pending != null){
+            pending.clear();
+        }
+        jdbcTemplate.update(DELETE_ALL);
+        jdbcTemplate.update(INSERT_ALL);
+    }
+
+    // 대량 적재처럼 끝나고 rebuild() 할 작업은, 회원마다 갱신하지 않도록 현재 쓰레드에서 증분 갱신을 멈춘다.
+    public <T> T suspended(Supplier<T> work){
+
+        boolean previous = SUSPENDED.get();
+        SUSPENDED.set(true);
+        try {
+            return work.get();
+        } finally {
+            SUSPENDED.set(previous);
+        }
+    }
+
+    private boolean isSuspended(){
+        return SUSPENDED.get();
+    }
+
+    // 트랜잭션 안이면 모아 두고, 아니면 바로 반영
+    private void record(Long teamId, Consumer<Delta> change){
+
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            Delta delta = new Delta();
+            change.accept(delta);
+            apply(Map.of(teamId, delta));
+            return;
+        }
+
+        Map<Long, Delta> pending = pendingDeltas();
+        if(pending == null){
+            pending = new LinkedHashMap<>();
+            bindPendingDeltas(pending);
+        }
+        change.accept(pending.computeIfAbsent(teamId, id -> new Delta()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Delta> pendingDeltas(){
+        return (Map<Long, Delta>) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private void bindPendingDeltas(Map<Long, Delta> pending){
+
+        TransactionSynchronizationManager.bindResource(this, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // 커밋할 때의 flush는 이 콜백 다음에 일어나므로, 아직 반영되지 않은 회원 변경을 먼저 flush 한다.
+                if(!readOnly){
+                    entityManager.getObject().flush();
+                }
+                apply(pending);
+                pending.clear();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TeamStatsMaintainer.this);
+            }
+        });
+    }
+
+    private void apply(Map<Long, Delta> deltas){
+
+        if(deltas.isEmpty()){
+            return;
+        }
+
+        List<Object[]> teamIds = new ArrayList<>(deltas.size());
+        List<Object[]> changes = new ArrayList<>(deltas.size());
+        List<Object[]> removedFrom = new ArrayList<>();
+        deltas.forEach((teamId, delta) -> {
+            teamIds.add(new Object[]{teamId});
+            changes.add(new Object[]{delta.count, delta.ageSum, delta.maxRemoved, delta.maxAdded, teamId});
+            if(delta.maxRemoved != null){
+                removedFrom.add(new Object[]{teamId, teamId});
+            }
+        });
+
+        ensureRows(teamIds);
+        jdbcTemplate.batchUpdate(APPLY_DELTA, changes);
+        if(!removedFrom.isEmpty()){
+            jdbcTemplate.batchUpdate(REFRESH_MAX_AGE, removedFrom);
+        }
+    }
+
+    private void ensureRows(List<Object[]> teamIds){
+
+        try {
+            jdbcTemplate.batchUpdate(ENSURE_ROW, teamIds);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.batchUpdate(ENSURE_ROW, teamIds); // 다른 트랜잭션이 먼저 만든 row는 이제 matched
+        }
+    }
+
+    // 트랜잭션 1개 동안 팀 1개의 변화량
+    private static class Delta {
+
+        private long count;
+        private long ageSum;
+        private Integer maxAdded;   // 들어온 회원 중 최대 나이
+        private Integer maxRemoved; // 빠진 회원 중 최대 나이
+
+        void add(int age){
+            count++;
+            ageSum += age;
+            maxAdded = maxAdded == null ? age : Math.max(maxAdded, age);
+        }
+
+        void remove(int age){
+            count--;
+            ageSum -= age;
+            maxRemoved = maxRemoved == null ? age : Math.max(maxRemoved, age);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.QTeamStatsDto;
+import study.querydsl.dto.TeamStatsDto;
+
+import java.util.List;
+
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTeamStats.teamStats;
+
+/**
+ * 팀별 통계 조회 : 회원 전체를 GROUP BY 하지 않고, 미리 집계된 TeamStats를 팀 수만큼만 읽는다.
+ * (QuerydslBasicTest.groupBy()와 같은 결과)
+ */
+@Repository
+public class TeamStatsRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TeamStatsMaintainer maintainer;
+
+    public TeamStatsRepository(EntityManager em, TeamStatsMaintainer maintainer){
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.maintainer = maintainer;
+    }
+
+    // 통계는 회원 변경을 커밋할 때 갱신된다.(TeamStatsMaintainer) -> 조회는 통계 row만 읽는다.
+    @Transactional(readOnly = true)
+    public List<TeamStatsDto> findAll(){
+
+        // 회원이 없는 팀은 통계 row가 없다. -> left join
+        return queryFactory
+                .select(new QTeamStatsDto(
+                        team.id,
+                        team.name,
+                        teamStats.memberCount,
+                        teamStats.ageSum,
+                        teamStats.maxAge))
+                .from(team)
+                .leftJoin(teamStats).on(teamStats.teamId.eq(team.id))
+                .orderBy(team.id.asc())
+                .fetch();
+    }
+
+    // 벌크 연산 등으로 통계가 틀어졌을 때 전체 다시 집계
+    @Transactional
+    public void rebuild(){
+        em.flush();
+        maintainer.rebuild();
+    }
+}
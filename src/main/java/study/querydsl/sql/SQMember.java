@@ -0,0 +1,63 @@
+package study.querydsl.sql;
+
+import static com.querydsl.core.types.PathMetadataFactory.*;
+
+import com.querydsl.core.types.dsl.*;
+
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.Path;
+
+import com.querydsl.sql.ColumnMetadata;
+import java.sql.Types;
+
+/**
+ * MEMBER 테이블의 querydsl-sql 메타 모델 (MemberSqlSearch)
+ * -> 코드 생성(querydsl-sql-codegen)이 아니라 직접 관리한다. Member 엔티티의 컬럼이 바뀌면 addMetadata()도 같이 고친다.
+ * -> 조회용으로 컬럼만 정의한다.(PK, FK 메타데이터는 없다 : join 조건은 on()으로 직접 쓴다)
+ */
+public class SQMember extends com.querydsl.sql.RelationalPathBase<SQMember> {
+
+    public static final SQMember member = new SQMember("MEMBER");
+
+    public final NumberPath<Integer> age = createNumber("age", Integer.class);
+
+    public final NumberPath<Long> memberId = createNumber("memberId", Long.class);
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public final StringPath username = createString("username");
+
+    public SQMember(String variable) {
+        super(SQMember.class, forVariable(variable), "PUBLIC", "MEMBER");
+        addMetadata();
+    }
+
+    public SQMember(String variable, String schema, String table) {
+        super(SQMember.class, forVariable(variable), schema, table);
+        addMetadata();
+    }
+
+    public SQMember(String variable, String schema) {
+        super(SQMember.class, forVariable(variable), schema, "MEMBER");
+        addMetadata();
+    }
+
+    public SQMember(Path<? extends SQMember> path) {
+        super(path.getType(), path.getMetadata(), "PUBLIC", "MEMBER");
+        addMetadata();
+    }
+
+    public SQMember(PathMetadata metadata) {
+        super(SQMember.class, metadata, "PUBLIC", "MEMBER");
+        addMetadata();
+    }
+
+    public void addMetadata() {
+        addMetadata(age, ColumnMetadata.named("AGE").withIndex(2).ofType(Types.INTEGER).withSize(32).notNull());
+        addMetadata(memberId, ColumnMetadata.named("MEMBER_ID").withIndex(1).ofType(Types.BIGINT).withSize(64).notNull());
+        addMetadata(teamId, ColumnMetadata.named("TEAM_ID").withIndex(4).ofType(Types.BIGINT).withSize(64));
+        addMetadata(username, ColumnMetadata.named("USERNAME").withIndex(3).ofType(Types.VARCHAR).withSize(255));
+    }
+
+}
+
@@ -0,0 +1,57 @@
+package study.querydsl.sql;
+
+import static com.querydsl.core.types.PathMetadataFactory.*;
+
+import com.querydsl.core.types.dsl.*;
+
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.Path;
+
+import com.querydsl.sql.ColumnMetadata;
+import java.sql.Types;
+
+/**
+ * TEAM 테이블의 querydsl-sql 메타 모델 (MemberSqlSearch)
+ * -> 코드 생성(querydsl-sql-codegen)이 아니라 직접 관리한다. Team 엔티티의 컬럼이 바뀌면 addMetadata()도 같이 고친다.
+ * -> 조회용으로 컬럼만 정의한다.(PK, FK 메타데이터는 없다 : join 조건은 on()으로 직접 쓴다)
+ */
+public class SQTeam extends com.querydsl.sql.RelationalPathBase<SQTeam> {
+
+    public static final SQTeam team = new SQTeam("TEAM");
+
+    public final StringPath name = createString("name");
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public SQTeam(String variable) {
+        super(SQTeam.class, forVariable(variable), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public SQTeam(String variable, String schema, String table) {
+        super(SQTeam.class, forVariable(variable), schema, table);
+        addMetadata();
+    }
+
+    public SQTeam(String variable, String schema) {
+        super(SQTeam.class, forVariable(variable), schema, "TEAM");
+        addMetadata();
+    }
+
+    public SQTeam(Path<? extends SQTeam> path) {
+        super(path.getType(), path.getMetadata(), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public SQTeam(PathMetadata metadata) {
+        super(SQTeam.class, metadata, "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public void addMetadata() {
+        addMetadata(name, ColumnMetadata.named("NAME").withIndex(2).ofType(Types.VARCHAR).withSize(255));
+        addMetadata(teamId, ColumnMetadata.named("TEAM_ID").withIndex(1).ofType(Types.BIGINT).withSize(64).notNull());
+    }
+
+}
+
@@ -0,0 +1,11 @@
+-- MemberSearchIndexAdvisor의 추천 규칙 : 동등 조건 컬럼이 앞, 범위 조건(age) 컬럼이 뒤
+
+-- usernameEq (+ ageGoe/ageLoe)
+create index if not exists idx_member_username_age on member (username, age);
+
+-- teamNameEq : team(name)으로 팀을 찾고, member(team_id, age)로 join
+create index if not exists idx_team_name on team (name);
+create index if not exists idx_member_team_id_age on member (team_id, age);
+
+-- ageGoe/ageLoe 만
+create index if not exists idx_member_age on member (age);
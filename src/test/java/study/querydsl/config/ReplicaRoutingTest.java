@@ -0,0 +1,278 @@
+package study.querydsl.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.ReplicaStatus;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.in;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+/**
+ * H2 메모리 DB 3개(primary 1 + replica 2)로 라우팅 확인
+ * -> H2에는 복제가 없으므로, replica에는 테이블과 [replica에만 있는] 회원을 직접 넣고 heartbeat 행도 직접 복사한다.
+ * -> 어느 DB에서 조회했는지는 결과에 나온 회원 이름으로 구분한다.
+ * -> 헬스 체크는 스케줄러 대신 직접 호출한다.(check-interval: 1h)
+ * -> 웹 요청 안에서 읽기/쓰기를 섞는 경우는 테스트용 컨트롤러(ReadWriteController)를 MockMvc로 호출한다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "member.replica.urls=jdbc:h2:mem:replica1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:replica2;DB_CLOSE_DELAY=-1",
+        "member.replica.max-lag=10s",
+        "member.replica.check-interval=1h",
+        "member.result-cache.enabled=false"}) // 캐시가 아니라 DB에서 읽은 결과를 확인
+@ActiveProfiles({"test", "replica"})
+@AutoConfigureMockMvc
+@Import(ReplicaRoutingTest.ReadWriteController.class)
+class ReplicaRoutingTest {
+
+    private static final String HEARTBEAT = "select beat_at from replica_heartbeat where id = 1";
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    ReplicaMonitor replicaMonitor;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate; // 트랜잭션 밖 -> primary
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    JdbcTemplate replica1 = replica("jdbc:h2:mem:replica1;DB_CLOSE_DELAY=-1");
+    JdbcTemplate replica2 = replica("jdbc:h2:mem:replica2;DB_CLOSE_DELAY=-1");
+
+    @BeforeEach
+    void setUp(){
+
+        transaction().executeWithoutResult(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            em.persist(new Member("primary-member", 10, team));
+        });
+
+        createReplica(replica1, "replica1-member");
+        createReplica(replica2, "replica2-member");
+        replicate(replica1);
+        replicate(replica2);
+
+        replicaMonitor.check();
+    }
+
+    @AfterEach
+    void cleanUp(){
+        transaction().executeWithoutResult(status -> {
+            em.createQuery("select m from Member m", Member.class).getResultList().forEach(em::remove);
+            em.createQuery("select t from Team t", Team.class).getResultList().forEach(em::remove);
+        });
+        emf.getCache().evictAll(); // 같은 컨텍스트의 다음 테스트가 지운 회원을 2차 캐시에서 읽지 않도록
+    }
+
+    @Test
+    void readOnlyQueriesGoToReplicasRoundRobin(){
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        List<String> usernames = new ArrayList<>();
+        usernames.addAll(usernames(memberRepository.search(condition)));
+        usernames.addAll(usernames(memberRepository.search(condition)));
+        assertThat(usernames).containsExactlyInAnyOrder("replica1-member", "replica2-member");
+
+        assertThat(usernames(memberJpaRepository.search(condition)))
+                .containsAnyOf("replica1-member", "replica2-member");
+
+        // 읽기-쓰기 트랜잭션에 참여하면 primary
+        List<MemberTeamDto> inTransaction = transaction().execute(status -> memberRepository.search(condition));
+        assertThat(usernames(inTransaction)).containsExactly("primary-member");
+
+        // 쓰기는 항상 primary
+        memberRepository.save(new Member("written", 20));
+        assertThat(count(jdbcTemplate, "written")).isEqualTo(1);
+        assertThat(count(replica1, "written")).isZero();
+        assertThat(count(replica2, "written")).isZero();
+    }
+
+    @Test
+    void laggingOrDownReplicasFallBackToPrimary(){
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        // replica1 : 1분 전 heartbeat까지만 복제됨, replica2 : 장애(heartbeat 조회 실패)
+        Timestamp beat = jdbcTemplate.queryForObject(HEARTBEAT, Timestamp.class);
+        replica1.update("update replica_heartbeat set beat_at = ? where id = 1",
+                Timestamp.from(beat.toInstant().minus(Duration.ofMinutes(1))));
+        replica2.execute("drop table replica_heartbeat");
+        replicaMonitor.check();
+
+        List<ReplicaStatus> status = replicaMonitor.status();
+        assertThat(status).extracting("healthy").containsExactly(true, false);
+        assertThat(status).extracting("available").containsExactly(false, false);
+        assertThat(status.get(0).getLagMillis()).isGreaterThanOrEqualTo(Duration.ofMinutes(1).toMillis());
+
+        assertThat(usernames(memberRepository.search(condition))).containsExactly("primary-member");
+
+        // replica1이 따라잡으면 다시 replica1으로 (replica2는 계속 제외)
+        replicate(replica1);
+        replicaMonitor.check();
+
+        assertThat(usernames(memberRepository.search(condition))).containsExactly("replica1-member");
+        assertThat(usernames(memberRepository.search(condition))).containsExactly("replica1-member");
+    }
+
+    @Test
+    void readAndWriteInOneWebRequest() throws Exception {
+
+        // 읽기 -> 쓰기 -> 읽기 : 트랜잭션마다 커넥션을 다시 고른다.(open-in-view: false)
+        mockMvc.perform(post("/test/replica/read-write").param("username", "written-in-request"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$", everyItem(in(List.of("replica1-member", "replica2-member")))));
+
+        assertThat(count(jdbcTemplate, "written-in-request")).isEqualTo(1);
+        assertThat(count(replica1, "written-in-request")).isZero();
+        assertThat(count(replica2, "written-in-request")).isZero();
+    }
+
+    @Test
+    void laggingReplicaReadsAreNotCached(){
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("replica1-member");
+        PageRequest pageable = PageRequest.of(0, 1); // 데이터 내용 1건 = page size -> [전체 카운트] 쿼리를 날린다.
+        emf.getCache().evictAll(); // setUp에서 persist한 primary 회원이 같은 id로 2차 캐시에 들어 있을 수 있다.
+
+        // replica1 : 2초 지연(max-lag 10s 이하라 사용은 한다), replica2 : 장애
+        Timestamp beat = jdbcTemplate.queryForObject(HEARTBEAT, Timestamp.class);
+        replica1.update("update replica_heartbeat set beat_at = ? where id = 1",
+                Timestamp.from(beat.toInstant().minus(Duration.ofSeconds(2))));
+        replica2.execute("drop table replica_heartbeat");
+        replicaMonitor.check();
+
+        assertThat(memberRepository.searchPageComplex1(condition, pageable).getTotalElements()).isEqualTo(1);
+        assertThat(countCache.peek(condition)).isEmpty();
+
+        readOnlyTransaction().executeWithoutResult(status -> em.find(Member.class, 1L));
+        assertThat(emf.getCache().contains(Member.class, 1L)).isFalse();
+
+        // replica1이 따라잡으면(lag = 0) 다시 캐싱한다.
+        replicate(replica1);
+        replicaMonitor.check();
+
+        assertThat(memberRepository.searchPageComplex1(condition, pageable).getTotalElements()).isEqualTo(1);
+        assertThat(countCache.peek(condition)).hasValue(1);
+
+        readOnlyTransaction().executeWithoutResult(status -> em.find(Member.class, 1L));
+        assertThat(emf.getCache().contains(Member.class, 1L)).isTrue();
+    }
+
+    private void createReplica(JdbcTemplate replica, String username){
+        replica.execute("drop table if exists member");
+        replica.execute("drop table if exists team");
+        replica.execute("drop table if exists replica_heartbeat");
+        replica.execute("create table team (team_id bigint primary key, name varchar(255))");
+        replica.execute("create table member (member_id bigint primary key, age integer not null, username varchar(255), team_id bigint)");
+        replica.execute("create table replica_heartbeat (id int primary key, beat_at timestamp(9) not null)");
+        replica.update("insert into team values (1, 'teamA')");
+        replica.update("insert into member values (1, 10, ?, 1)", username);
+    }
+
+    // primary의 마지막 heartbeat를 replica로 복사 (= 복제가 따라잡음)
+    private void replicate(JdbcTemplate replica){
+        Timestamp beat = jdbcTemplate.queryForObject(HEARTBEAT, Timestamp.class);
+        replica.update("merge into replica_heartbeat key(id) values (1, ?)", beat);
+    }
+
+    private long count(JdbcTemplate jdbc, String username){
+        return jdbc.queryForObject("select count(*) from member where username = ?", Long.class, username);
+    }
+
+    private static List<String> usernames(List<MemberTeamDto> results){
+        return results.stream().map(MemberTeamDto::getUsername).toList();
+    }
+
+    private TransactionTemplate transaction(){
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private TransactionTemplate readOnlyTransaction(){
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static JdbcTemplate replica(String url){
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+
+    // 한 웹 요청 안에서 읽기(replica) -> 쓰기(primary) -> 읽기(replica), 읽은 회원 이름을 돌려준다.
+    @RestController
+    static class ReadWriteController {
+
+        private final MemberRepository memberRepository;
+
+        ReadWriteController(MemberRepository memberRepository) {
+            this.memberRepository = memberRepository;
+        }
+
+        @PostMapping("/test/replica/read-write")
+        List<String> readWriteRead(@RequestParam String username){
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+
+            List<String> usernames = new ArrayList<>(usernames(memberRepository.search(condition)));
+            memberRepository.save(new Member(username, 20));
+            usernames.addAll(usernames(memberRepository.search(condition)));
+            return usernames;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package study.querydsl.loader;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.ImportProgress;
+import study.querydsl.dto.ImportSummary;
+import study.querydsl.entity.Team;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+
+// batch마다 importer가 자기 트랜잭션으로 커밋하므로, 테스트에 @Transactional을 붙이지 않고 끝나면 직접 지운다.
+@SpringBootTest(properties = "loader.import-batch-size=2")
+class MemberImporterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MemberImporter importer;
+
+    @AfterEach
+    void cleanUp(){
+        jdbcTemplate.update("delete from member where username like 'importer%'");
+        jdbcTemplate.update("delete from team_stats where team_id in (select team_id from team where name like 'importTeam%')");
+        jdbcTemplate.update("delete from team where name like 'importTeam%'");
+    }
+
+    @Test
+    void importCsv() throws IOException {
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> em.persist(new Team("importTeamA")));
+
+        String csv = """
+                username,age,teamName
+                importer1,10,importTeamA
+                importer-bad,abc,importTeamA
+                importer2,20,importTeamB
+                importer3,30,
+                importer4,40,importTeamB
+                importer5,50,importTeamA
+                """;
+
+        List<ImportProgress> progress = new ArrayList<>();
+        ImportSummary summary = importer.importMembers(stream(csv), ImportFormat.CSV, progress::add);
+
+        // batch 크기 2 : 2건, 2건, 1건
+        assertThat(progress).extracting("inserted").containsExactly(2, 2, 1);
+        assertThat(progress).extracting("totalInserted").containsExactly(2L, 4L, 5L);
+        assertThat(progress).extracting("rejected").containsExactly(1L, 1L, 1L);
+
+        assertThat(summary.getBatches()).isEqualTo(3);
+        assertThat(summary.getInserted()).isEqualTo(5);
+        assertThat(summary.getRejected()).isEqualTo(1);
+        assertThat(summary.getTeamsCreated()).isEqualTo(1); // importTeamB
+
+        assertThat(countMembers("importTeamA")).isEqualTo(2);
+        assertThat(countMembers("importTeamB")).isEqualTo(2);
+        assertThat(countTeams("importTeamB")).isEqualTo(1);
+
+    }
+
+    @Test
+    void importNdjson() throws IOException {
+
+        String ndjson = """
+                {"username":"importer1","age":10,"teamName":"importTeamC"}
+                {"username":"importer2"}
+                {"username":"importer3","age":30,"teamName":"importTeamC"}
+                {"username":"importer4","age":40}
+                """;
+
+        List<ImportProgress> progress = new ArrayList<>();
+        ImportSummary summary = importer.importMembers(stream(ndjson), ImportFormat.NDJSON, progress::add);
+
+        assertThat(progress).extracting("totalInserted").containsExactly(2L, 3L);
+        assertThat(summary.getInserted()).isEqualTo(3);
+        assertThat(summary.getRejected()).isEqualTo(1); // age 없음
+        assertThat(summary.getTeamsCreated()).isEqualTo(1);
+
+        // 같은 팀 이름이 여러 batch에 나와도 팀은 1개만 만든다.
+        assertThat(countTeams("importTeamC")).isEqualTo(1);
+        assertThat(countMembers("importTeamC")).isEqualTo(2);
+
+    }
+
+    @Test
+    void batchFailure() throws IOException {
+
+        String csv = "importer1,10,importTeamA\n"
+                + "importer2,20,importTeamA\n"
+                + "importer3,30,importTeamD\n"
+                + "importer" + "x".repeat(300) + ",40,importTeamD\n"; // username 컬럼(255자)보다 길다.
+
+        List<ImportProgress> progress = new ArrayList<>();
+        assertThatThrownBy(() -> importer.importMembers(stream(csv), ImportFormat.CSV, progress::add))
+                .isInstanceOf(PersistenceException.class);
+
+        // 실패한 batch만 롤백되고, 앞의 batch는 커밋되어 있다.
+        assertThat(progress).extracting("totalInserted").containsExactly(2L);
+        assertThat(countMembers("importTeamA")).isEqualTo(2);
+        assertThat(countMembers("importTeamD")).isEqualTo(0);
+
+        // 새 팀은 자기 트랜잭션으로 먼저 커밋되었으므로, 다시 등록할 때 그 팀을 그대로 쓴다.
+        assertThat(countTeams("importTeamD")).isEqualTo(1);
+
+        ImportSummary retry = importer.importMembers(stream("importer3,30,importTeamD\n"), ImportFormat.CSV, p -> {});
+        assertThat(retry.getInserted()).isEqualTo(1);
+        assertThat(retry.getTeamsCreated()).isEqualTo(0);
+        assertThat(countMembers("importTeamD")).isEqualTo(1);
+        assertThat(countTeams("importTeamD")).isEqualTo(1);
+
+    }
+
+    private InputStream stream(String body){
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long countMembers(String teamName){
+        return new JPAQueryFactory(em)
+                .select(member.count())
+                .from(member)
+                .join(member.team, team)
+                .where(team.name.eq(teamName), member.username.startsWith("importer"))
+                .fetchOne();
+    }
+
+    private long countTeams(String teamName){
+        return new JPAQueryFactory(em)
+                .select(team.count())
+                .from(team)
+                .where(team.name.eq(teamName))
+                .fetchOne();
+    }
+
+}
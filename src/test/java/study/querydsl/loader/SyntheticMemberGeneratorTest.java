@@ -0,0 +1,95 @@
+package study.querydsl.loader;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class SyntheticMemberGeneratorTest {
+
+    @Test
+    void sameSeedSameDataset(){
+
+        DatasetSpec spec = spec();
+        List<Team> teams = teams(spec.getTeams());
+
+        SyntheticMemberGenerator first = new SyntheticMemberGenerator(spec);
+        SyntheticMemberGenerator second = new SyntheticMemberGenerator(spec);
+
+        // 순서와 상관없이 index만으로 결정된다.
+        for(long i = 999; i >= 0; i--){
+            Member a = first.generate(i, teams::get);
+            Member b = second.generate(i, teams::get);
+
+            assertThat(a.getUsername()).isEqualTo(b.getUsername());
+            assertThat(a.getAge()).isEqualTo(b.getAge());
+            assertThat(a.getTeam()).isSameAs(b.getTeam());
+        }
+
+    }
+
+    @Test
+    void zipfTeamSizes(){
+
+        DatasetSpec spec = spec();
+        List<Team> teams = teams(spec.getTeams());
+        SyntheticMemberGenerator generator = new SyntheticMemberGenerator(spec);
+
+        int[] sizes = new int[spec.getTeams()];
+        for(long i = 0; i < 10000; i++){
+            sizes[teams.indexOf(generator.generate(i, teams::get).getTeam())]++;
+        }
+
+        // 지수 1.0 : 첫 번째 팀이 마지막 팀보다 훨씬 크다.
+        assertThat(sizes[0]).isGreaterThan(sizes[spec.getTeams() - 1] * 5);
+
+    }
+
+    @Test
+    void ageRangeAndUsernameCardinality(){
+
+        DatasetSpec spec = spec();
+        spec.setAgeDistribution(AgeDistribution.NORMAL);
+        spec.setAgeMin(20);
+        spec.setAgeMax(60);
+        spec.setUsernameCardinality(50);
+
+        List<Team> teams = teams(spec.getTeams());
+        SyntheticMemberGenerator generator = new SyntheticMemberGenerator(spec);
+
+        Set<String> usernames = new HashSet<>();
+        for(long i = 0; i < 5000; i++){
+            Member member = generator.generate(i, teams::get);
+            assertThat(member.getAge()).isBetween(20, 60);
+            usernames.add(member.getUsername());
+        }
+
+        assertThat(usernames).hasSizeLessThanOrEqualTo(50);
+
+    }
+
+    private DatasetSpec spec(){
+        DatasetSpec spec = new DatasetSpec();
+        spec.setTeams(20);
+        spec.setMembersPerTeam(500);
+        spec.setZipfExponent(1.0);
+        spec.setSeed(7);
+        return spec;
+    }
+
+    private List<Team> teams(int count){
+        List<Team> teams = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            teams.add(new Team("team" + i));
+        }
+        return teams;
+    }
+
+}
@@ -0,0 +1,67 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.BulkResult;
+import study.querydsl.entity.Member;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+
+@SpringBootTest
+@Transactional
+class MemberBulkOperationsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkOperations bulkOperations;
+
+    @Autowired
+    MemberJpaRepository repository;
+
+    @Test
+    void chunkedUpdate(){
+
+        for(int i = 0; i < 10; i++){
+            em.persist(new Member("member" + i, i * 10));
+        }
+        // flush()를 하지 않아도 벌크 연산 전에 자동으로 flush 된다.
+
+        BulkResult result = bulkOperations.update(
+                member.age.lt(50),
+                clause -> clause.set(member.username, "비회원"),
+                2,
+                false);
+
+        assertThat(result.getAffected()).isEqualTo(5);
+        assertThat(result.getChunks()).extracting("affected").containsExactly(2L, 2L, 1L);
+
+        // 벌크 연산 후 clear() 되었으므로, DB에 반영된 값이 조회된다.
+        List<Member> members = repository.findByUsername("비회원");
+        assertThat(members).extracting("age").containsExactlyInAnyOrder(0, 10, 20, 30, 40);
+
+    }
+
+    @Test
+    void chunkedDelete(){
+
+        for(int i = 0; i < 10; i++){
+            em.persist(new Member("member" + i, i * 10));
+        }
+
+        BulkResult result = bulkOperations.delete(member.age.goe(50), 3, false);
+
+        assertThat(result.getAffected()).isEqualTo(5);
+        assertThat(repository.findAll()).hasSize(5);
+
+    }
+
+}
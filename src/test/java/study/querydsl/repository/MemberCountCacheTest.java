@@ -0,0 +1,140 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class MemberCountCacheTest {
+
+    @Test
+    void cacheHit(){
+
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 10);
+        AtomicInteger queryCount = new AtomicInteger();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        cache.getOrCompute(condition, () -> { queryCount.incrementAndGet(); return 50; });
+        long count = cache.getOrCompute(condition, () -> { queryCount.incrementAndGet(); return 50; });
+
+        assertThat(count).isEqualTo(50);
+        assertThat(queryCount.get()).isEqualTo(1); // 두 번째는 캐시에서 꺼내 옴
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+        assertThat(cache.stats().getMisses()).isEqualTo(1);
+
+        // peek()은 getOrCompute()의 적중률에 포함하지 않는다.
+        cache.peek(condition);
+        cache.peek(new MemberSearchCondition());
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+        assertThat(cache.stats().getMisses()).isEqualTo(1);
+        assertThat(cache.stats().getPeekHits()).isEqualTo(1);
+        assertThat(cache.stats().getPeekMisses()).isEqualTo(1);
+
+    }
+
+    @Test
+    void emptyStringIsSameAsNoCondition(){
+
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 10);
+
+        MemberSearchCondition noCondition = new MemberSearchCondition();
+        MemberSearchCondition emptyUsername = new MemberSearchCondition();
+        emptyUsername.setUsername("");
+
+        cache.getOrCompute(noCondition, () -> 100);
+        long count = cache.getOrCompute(emptyUsername, () -> -1);
+
+        assertThat(count).isEqualTo(100);
+
+    }
+
+    @Test
+    void invalidateAll(){
+
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 10);
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        cache.getOrCompute(condition, () -> 4);
+        cache.invalidateAll(); // Member 저장 등으로 무효화
+
+        long count = cache.getOrCompute(condition, () -> 5);
+        assertThat(count).isEqualTo(5);
+
+    }
+
+    @Test
+    void invalidateAgainAfterCompletion(){
+
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 10);
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidateAll(); // flush 시점 (커밋 전)
+            cache.invalidateAll(); // 같은 트랜잭션에서 여러 번 호출돼도 콜백은 1개
+
+            // 커밋 전에 다른 요청이 옛 카운트를 다시 캐싱
+            cache.getOrCompute(condition, () -> 4);
+            assertThat(cache.getOrCompute(condition, () -> -1)).isEqualTo(4);
+
+            assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(TransactionSynchronizationManager.hasResource(cache)).isFalse();
+        assertThat(cache.getOrCompute(condition, () -> 5)).isEqualTo(5); // 커밋 후 카운트
+
+    }
+
+    @Test
+    void bypassedInReadWriteTransaction(){
+
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 10);
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            // 커밋 전의 insert가 반영된 카운트 : 다른 요청에게 보이면 안 된다.
+            assertThat(cache.getOrCompute(condition, () -> 5)).isEqualTo(5);
+            assertThat(cache.getOrCompute(condition, () -> 6)).isEqualTo(6);
+            assertThat(cache.stats().getSize()).isZero();
+
+            // 읽기 전용 트랜잭션은 캐시를 사용한다.
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            cache.getOrCompute(condition, () -> 4);
+            assertThat(cache.getOrCompute(condition, () -> -1)).isEqualTo(4);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+    }
+
+    @Test
+    void boundedSize(){
+
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 2);
+
+        for(int age = 0; age < 5; age++){
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setAgeGoe(age);
+            cache.getOrCompute(condition, () -> 1);
+        }
+
+        assertThat(cache.stats().getSize()).isEqualTo(2);
+        assertThat(cache.stats().getEvictions()).isEqualTo(3);
+
+    }
+
+}
@@ -1,7 +1,12 @@
 package study.querydsl.repository;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -11,6 +16,7 @@ import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,9 +31,18 @@ class MemberJpaRepositoryTest {
     @Autowired
     EntityManager em;
 
+    @Autowired
+    EntityManagerFactory emf;
+
     @Autowired
     MemberJpaRepository repository;
 
+    @Autowired
+    MemberSearchQueryCache searchQueryCache;
+
+    @Autowired
+    MemberSqlSearch sqlSearch;
+
 
 
     @Test
@@ -99,4 +114,269 @@ class MemberJpaRepositoryTest {
 
     assertThat(result).extracting("username").containsExactly("member4");}
 
-}
\ No newline at end of file
+    @Test
+    void searchStreamTest(){
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        // 스트리밍 조회 결과는 search()와 같아야 한다.
+        List<MemberTeamDto> streamed = new ArrayList<>();
+        long count = repository.searchStream(condition, streamed::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(streamed).isEqualTo(repository.search(condition));
+
+    }
+
+    @Test
+    void searchStreamKeepsCallerPersistenceContext(){
+
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for(int i = 0; i < 600; i++){ // fetch size(500)보다 많이
+            em.persist(new Member("member" + i, i % 100, teamA));
+        }
+        Member tracked = new Member("tracked", 10, teamA);
+        em.persist(tracked);
+
+        long count = repository.searchStream(new MemberSearchCondition(), dto -> {});
+
+        // 호출한 쪽(이 테스트)의 트랜잭션에 참여했으므로, 영속성 컨텍스트를 비우면 안 된다.
+        assertThat(count).isEqualTo(601);
+        assertThat(em.contains(tracked)).isTrue();
+        assertThat(em.contains(teamA)).isTrue();
+
+    }
+
+    @Test
+    void searchShapesTest(){
+
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30));
+
+
+        // 조건 없음 : 팀이 없는 회원도 조회된다.(left join)
+        assertThat(repository.search(new MemberSearchCondition()))
+                .extracting("username").containsExactly("member1","member2","member3");
+
+        // 모양이 같으면 값만 바뀌어도 같은 JPQL을 재사용한다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member2");
+        assertThat(repository.search(condition)).extracting("teamName").containsExactly("teamA");
+
+        condition.setUsername("member3");
+        assertThat(repository.search(condition)).extracting("teamName").containsExactly((Object) null);
+
+        // 빈 문자열은 조건 없음으로 본다.
+        MemberSearchCondition ageOnly = new MemberSearchCondition();
+        ageOnly.setUsername("");
+        ageOnly.setAgeLoe(20);
+        assertThat(repository.search(ageOnly)).extracting("username").containsExactly("member1","member2");
+
+    }
+
+    @Test
+    void addMemberWithoutLoadingTeamMembers(){
+
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for(int i = 0; i < 10; i++){
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        // 1. 로딩된 팀 : Team.members는 초기화되지 않는다.(inverse bag의 add()는 큐에 쌓임)
+        Team findTeam = em.find(Team.class, teamA.getId());
+        em.persist(new Member("member10", 10, findTeam));
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+
+        // 2. 프록시(getReference) : 팀 자체도 조회하지 않는다.
+        em.flush();
+        em.clear();
+        Member member11 = new Member("member11", 11);
+        repository.saveToTeam(member11, teamA.getId());
+        assertThat(Hibernate.isInitialized(member11.getTeam())).isFalse();
+
+        em.flush();
+        em.clear();
+
+        // DB에는 모두 반영돼 있다.
+        assertThat(em.find(Team.class, teamA.getId()).getMembers()).hasSize(12);
+
+    }
+
+    @Test
+    void teamFetchStatementCount(){
+
+        // 팀 수가 늘어나도 (batch 크기 100 이내라면) 쿼리 수는 그대로다.
+        for (int teamCount : new int[]{5, 50}) {
+
+            for(int i = 0; i < teamCount; i++){
+                Team team = new Team("team" + teamCount + "_" + i);
+                em.persist(team);
+                em.persist(new Member("member" + teamCount + "_" + i, i, team));
+                em.persist(new Member("member" + teamCount + "_" + i + "b", i, team));
+            }
+
+            assertThat(countStatements(TeamFetchMode.LAZY)).isEqualTo(2);  // 회원 1번 + 팀 IN 1번 (default_batch_fetch_size)
+            assertThat(countStatements(TeamFetchMode.BATCH)).isEqualTo(2); // 회원 1번 + 팀 IN 1번 (TeamBatchLoader)
+            assertThat(countStatements(TeamFetchMode.JOIN)).isEqualTo(1);  // fetch join
+        }
+
+    }
+
+    // 회원 전체를 조회하고 모든 회원의 팀 이름에 접근할 때 날라간 쿼리 수
+    private long countStatements(TeamFetchMode fetchMode){
+
+        em.flush();
+        em.clear();
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Member> members = repository.findAll_Querydsl(fetchMode);
+        members.stream()
+                .filter(member -> member.getTeam() != null)
+                .forEach(member -> member.getTeam().getName());
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void readOnlyQueries(){
+
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+        em.clear();
+
+        List<Member> members = repository.findAllReadOnly_Querydsl();
+        assertThat(members).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        assertThat(em.unwrap(Session.class).isReadOnly(members.get(0))).isTrue(); // 스냅샷이 없다.
+
+        // 읽기 전용 엔티티는 값을 바꿔도 변경 감지 대상이 아니다.
+        members.forEach(member -> member.setAge(99));
+        em.flush();
+        em.clear();
+
+        assertThat(repository.findByUsername("member1")).extracting("age").containsExactly(10);
+        assertThat(repository.findByUsernameReadOnly("member2")).extracting("age").containsExactly(20);
+        assertThat(repository.findAllReadOnly()).hasSize(2);
+        assertThat(repository.findByUsernameReadOnly_Querydsl("member1")).hasSize(1);
+
+    }
+
+    @Test
+    void readOnlyEntitiesSkipDirtyCheckingOnFlush(){
+
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+        em.clear();
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        // 읽기 전용 : 값을 바꾸고 flush 해도 update가 날라가지 않는다.
+        statistics.clear();
+        repository.findAllReadOnly().forEach(member -> member.setAge(99));
+        em.flush();
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(0);
+        em.clear();
+
+        // 비교 : 일반 조회는 변경 감지로 update
+        statistics.clear();
+        repository.findByUsername("member1").forEach(member -> member.setAge(99));
+        em.flush();
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+
+    }
+
+    @Test
+    void findAllByIds(){
+
+        List<Long> ids = new ArrayList<>();
+        for(int i = 0; i < 10; i++){
+            Member member = new Member("member" + i, i);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+
+        Member alreadyLoaded = em.find(Member.class, ids.get(3)); // 영속성 컨텍스트에 있는 회원은 다시 조회하지 않는다.
+
+        // 입력 순서 그대로, 없는 id는 빠진다.
+        List<Long> request = List.of(ids.get(7), ids.get(3), -1L, ids.get(0), ids.get(9));
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Member> members = repository.findAllByIds(request);
+
+        assertThat(members).extracting("username").containsExactly("member7", "member3", "member0", "member9");
+        assertThat(members.get(1)).isSameAs(alreadyLoaded);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1); // IN 쿼리 1번
+
+    }
+
+    @Test
+    void searchSqlEngine(){
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50)); // 팀 없음
+        // flush 하지 않는다 : MemberSqlSearch가 먼저 flush 해야 보인다.
+
+        MemberSearchCondition all = new MemberSearchCondition();
+
+        MemberSearchCondition teamBOver35 = new MemberSearchCondition();
+        teamBOver35.setTeamName("teamB");
+        teamBOver35.setAgeGoe(35);
+
+        MemberSearchCondition byUsername = new MemberSearchCondition();
+        byUsername.setUsername("member5");
+        byUsername.setAgeLoe(50);
+
+        // JPA 버전과 결과가 같아야 한다.
+        for (MemberSearchCondition condition : List.of(all, teamBOver35, byUsername)) {
+            assertThat(sqlSearch.search(condition))
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(searchQueryCache.search(condition));
+        }
+
+        assertThat(sqlSearch.search(all)).hasSize(5);
+        assertThat(sqlSearch.search(teamBOver35)).extracting("username").containsExactly("member4");
+
+        List<MemberTeamDto> noTeam = sqlSearch.search(byUsername);
+        assertThat(noTeam).extracting("username").containsExactly("member5");
+        assertThat(noTeam.get(0).getTeamId()).isNull();
+        assertThat(noTeam.get(0).getTeamName()).isNull();
+
+    }
+
+}
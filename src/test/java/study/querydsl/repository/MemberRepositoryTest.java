@@ -6,15 +6,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberCursorSlice;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSyncRow;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UpsertResult;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -133,4 +139,173 @@ class MemberRepositoryTest {
 
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void searchSlice() {
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        // 첫 페이지
+        MemberCursorSlice first = repository.searchSlice(condition, null, 3);
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member1","member2","member3");
+        assertThat(first.isHasNext()).isTrue();
+
+        // 다음 페이지 : 이전 응답의 커서를 그대로 넘긴다.
+        MemberCursorSlice second = repository.searchSlice(condition, first.getNextCursor(), 3);
+
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+
+        // 잘못된 커서, 범위를 벗어난 size는 400(InvalidPageRequestException)
+        assertThatThrownBy(() -> repository.searchSlice(condition, "not-a-cursor", 3))
+                .isInstanceOf(InvalidPageRequestException.class);
+        assertThatThrownBy(() -> repository.searchSlice(condition, null, 0))
+                .isInstanceOf(InvalidPageRequestException.class);
+        assertThatThrownBy(() -> repository.searchSlice(condition, null, 1001))
+                .isInstanceOf(InvalidPageRequestException.class);
+
+    }
+
+    @Test
+    void searchPageDeferredJoin() {
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for(int i = 0; i < 10; i++){
+            em.persist(new Member("member" + i, i * 10, (i % 2) == 0 ? teamA : teamB));
+        }
+
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        PageRequest pageRequest = PageRequest.of(1, 2);
+
+        Page<MemberTeamDto> offset = repository.searchPage(condition, pageRequest, MemberPageStrategy.OFFSET);
+        Page<MemberTeamDto> deferredJoin = repository.searchPage(condition, pageRequest, MemberPageStrategy.DEFERRED_JOIN);
+
+        // 두 전략의 결과는 같아야 한다.
+        assertThat(deferredJoin.getContent()).extracting("username").containsExactly("member5","member7");
+        assertThat(deferredJoin.getContent()).isEqualTo(offset.getContent());
+        assertThat(deferredJoin.getTotalElements()).isEqualTo(offset.getTotalElements()).isEqualTo(5);
+
+    }
+
+    @Test
+    void searchPageSort() {
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 20, teamA));
+        em.persist(new Member("member2", 40, teamA));
+        em.persist(new Member("member3", 20, teamB));
+        em.persist(new Member("member4", 30, teamB));
+
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        // 나이가 같으면 member.id 순서(tiebreaker)
+        PageRequest byAge = PageRequest.of(0, 4, Sort.by(Sort.Direction.DESC, "age"));
+        assertThat(repository.searchPageComplex2(condition, byAge).getContent())
+                .extracting("username").containsExactly("member2","member4","member1","member3");
+
+        // 인덱스가 없는 속성으로는 정렬할 수 없다.
+        PageRequest byUnknown = PageRequest.of(0, 4, Sort.by("teamId"));
+        assertThatThrownBy(() -> repository.searchPageComplex2(condition, byUnknown))
+                .isInstanceOf(InvalidPageRequestException.class);
+
+        // teamName 정렬은 앞쪽 페이지(top-N)까지만 허용
+        PageRequest byTeamName = PageRequest.of(0, 4, Sort.by(Sort.Direction.DESC, "teamName"));
+        assertThat(repository.searchPage(condition, byTeamName, MemberPageStrategy.DEFERRED_JOIN).getContent())
+                .extracting("username").containsExactly("member3","member4","member1","member2");
+
+        PageRequest deepByTeamName = PageRequest.of(1000, 4, Sort.by("teamName"));
+        assertThatThrownBy(() -> repository.searchPageComplex2(condition, deepByTeamName))
+                .isInstanceOf(InvalidPageRequestException.class);
+
+        // username, age 인덱스는 indexed 프로필에서만 만들어진다. -> 인덱스가 없으면 teamName처럼 top-N까지만 허용
+        PageRequest deepByUsername = PageRequest.of(1000, 4, Sort.by("username"));
+        assertThatThrownBy(() -> repository.searchPageComplex2(condition, deepByUsername))
+                .isInstanceOf(InvalidPageRequestException.class);
+
+        // id는 PK 인덱스로 정렬하므로 깊은 페이지도 허용
+        PageRequest deepById = PageRequest.of(1000, 4, Sort.by("id"));
+        assertThat(repository.searchPageComplex2(condition, deepById).getContent()).isEmpty();
+
+    }
+
+    @Test
+    void searchSliceByPage() {
+
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for(int i = 1; i <= 5; i++){
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Slice<MemberTeamDto> first = repository.searchSliceByPage(condition, PageRequest.of(0, 3));
+        assertThat(first.getContent()).extracting("username").containsExactly("member1","member2","member3");
+        assertThat(first.hasNext()).isTrue();
+
+        Slice<MemberTeamDto> last = repository.searchSliceByPage(condition, PageRequest.of(1, 3));
+        assertThat(last.getContent()).extracting("username").containsExactly("member4","member5");
+        assertThat(last.hasNext()).isFalse();
+
+        // 마지막 페이지라면 [전체 카운트]를 정확히 알 수 있다.
+        Page<MemberTeamDto> approximate = repository.searchPageApproximate(condition, PageRequest.of(1, 3));
+        assertThat(approximate.getTotalElements()).isEqualTo(5);
+
+    }
+
+    @Test
+    void upsertByUsername() {
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        // flush()를 하지 않아도 upsert 전에 flush 된다.
+
+        UpsertResult result = repository.upsertByUsername(List.of(
+                new MemberSyncRow("member1", 11, teamB.getId()), // 이미 있음 -> update
+                new MemberSyncRow("member2", 20, teamA.getId()), // 없음 -> insert
+                new MemberSyncRow("member3", 30, null),
+                new MemberSyncRow("member3", 31, null)));         // 같은 요청 안의 중복 -> update
+
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getUpdated()).isEqualTo(2);
+
+        // upsert 후 clear() 되었으므로, DB에 반영된 값이 조회된다.
+        Member member1 = repository.findByUsername("member1").get(0);
+        assertThat(member1.getAge()).isEqualTo(11);
+        assertThat(member1.getTeam().getName()).isEqualTo("teamB");
+
+        assertThat(repository.findByUsername("member2")).extracting("age").containsExactly(20);
+        assertThat(repository.findByUsername("member3")).extracting("age").containsExactly(31);
+
+    }
+
+}
@@ -0,0 +1,57 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.IndexRecommendation;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class MemberSearchIndexAdvisorTest {
+
+    @Test
+    void recommendations(){
+
+        MemberSearchIndexAdvisor advisor = new MemberSearchIndexAdvisor(0.05);
+
+        // teamName + 나이 범위 검색이 대부분
+        MemberSearchCondition teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName("teamA");
+        teamAndAge.setAgeGoe(20);
+        for(int i = 0; i < 90; i++){
+            advisor.record(teamAndAge);
+        }
+
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("member1");
+        for(int i = 0; i < 10; i++){
+            advisor.record(username);
+        }
+
+        List<IndexRecommendation> result = advisor.recommendations();
+
+        assertThat(result).extracting("ddl").containsExactly(
+                "create index if not exists idx_member_team_id_age on member (team_id, age);",
+                "create index if not exists idx_team_name on team (name);",
+                "create index if not exists idx_member_username on member (username);");
+
+    }
+
+    @Test
+    void rareShapesAreIgnored(){
+
+        MemberSearchIndexAdvisor advisor = new MemberSearchIndexAdvisor(0.5);
+
+        MemberSearchCondition ageOnly = new MemberSearchCondition();
+        ageOnly.setAgeLoe(30);
+        advisor.record(ageOnly);
+        advisor.record(new MemberSearchCondition());
+        advisor.record(new MemberSearchCondition());
+
+        assertThat(advisor.recommendations()).isEmpty();
+
+    }
+
+}
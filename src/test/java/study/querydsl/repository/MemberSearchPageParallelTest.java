@@ -0,0 +1,179 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.ApproximatePage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+
+/**
+ * searchPageParallel() : [데이터 내용], [전체 카운트] 쿼리를 각자의 쓰레드/트랜잭션에서 실행한다.
+ * -> 트랜잭션 안에서 호출하면 순서대로 실행하므로, 테스트에 @Transactional을 붙이지 않고 끝나면 직접 지운다.
+ * -> memberQueryExecutor를 mock으로 바꿔서, 실제 실행은 테스트의 쓰레드 풀에 넘기되 [전체 카운트]만 늦추거나 거절할 수 있게 한다.
+ */
+@SpringBootTest(properties = {
+        "member.parallel-page.count-timeout=200ms",
+        "member.result-cache.enabled=false"})
+class MemberSearchPageParallelTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository repository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @MockBean(name = "memberQueryExecutor")
+    AsyncTaskExecutor queryExecutor;
+
+    ThreadPoolTaskExecutor pool;
+
+    @BeforeEach
+    void setUp(){
+
+        pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(2);
+        pool.initialize();
+
+        transaction().executeWithoutResult(status -> {
+            Team teamA = new Team("parallelTeam");
+            em.persist(teamA);
+            for(int i = 0; i < 4; i++){
+                em.persist(new Member("parallel" + i, 10 + i, teamA));
+            }
+        });
+    }
+
+    @AfterEach
+    void cleanUp(){
+
+        pool.shutdown();
+
+        transaction().executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.username like 'parallel%'", Member.class)
+                    .getResultList().forEach(em::remove);
+            em.createQuery("select t from Team t where t.name = 'parallelTeam'", Team.class)
+                    .getResultList().forEach(em::remove);
+        });
+    }
+
+    @Test
+    void contentAndCountInParallel(){
+
+        given(queryExecutor.submit(any(Callable.class)))
+                .willAnswer(invocation -> pool.submit((Callable<?>) invocation.getArgument(0)));
+
+        Page<MemberTeamDto> page = repository.searchPageParallel(condition(), PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).extracting("username").containsExactly("parallel0", "parallel1");
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(((ApproximatePage<MemberTeamDto>) page).isTotalApproximate()).isFalse();
+
+    }
+
+    @Test
+    void countTimeoutReturnsApproximateTotal(){
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger submitted = new AtomicInteger();
+
+        // 2번째로 제출되는 작업 = [전체 카운트] : count-timeout(200ms)이 지날 때까지 시작하지 않는다.
+        given(queryExecutor.submit(any(Callable.class))).willAnswer(invocation -> {
+            Callable<?> task = invocation.getArgument(0);
+            if(submitted.incrementAndGet() == 2){
+                return pool.submit(() -> {
+                    release.await();
+                    return task.call();
+                });
+            }
+            return pool.submit(task);
+        });
+
+        try {
+            Page<MemberTeamDto> page = repository.searchPageParallel(condition(), PageRequest.of(0, 2));
+
+            // [데이터 내용]은 그대로, [전체 카운트]는 "다음 페이지가 적어도 1건 있다" 수준의 근사값
+            assertThat(page.getContent()).extracting("username").containsExactly("parallel0", "parallel1");
+            assertThat(page.getTotalElements()).isEqualTo(3);
+            assertThat(((ApproximatePage<MemberTeamDto>) page).isTotalApproximate()).isTrue();
+        } finally {
+            release.countDown();
+        }
+
+    }
+
+    @Test
+    void databaseCountTimeoutReturnsApproximateTotal(){
+
+        AtomicInteger submitted = new AtomicInteger();
+
+        // 2번째로 제출되는 작업 = [전체 카운트] : 느린 count 쿼리에 DB의 query timeout이 먼저 걸린 경우 (변환되지 않은 JPA 예외)
+        given(queryExecutor.submit(any(Callable.class))).willAnswer(invocation -> {
+            Callable<?> task = invocation.getArgument(0);
+            if(submitted.incrementAndGet() == 2){
+                Callable<Long> slowCount = () -> {
+                    Thread.sleep(50);
+                    throw new jakarta.persistence.QueryTimeoutException("count timeout",
+                            new org.hibernate.QueryTimeoutException("count timeout", new SQLTimeoutException("timeout"), "select count(*)"));
+                };
+                return pool.submit(slowCount);
+            }
+            return pool.submit(task);
+        });
+
+        Page<MemberTeamDto> page = repository.searchPageParallel(condition(), PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).extracting("username").containsExactly("parallel0", "parallel1");
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(((ApproximatePage<MemberTeamDto>) page).isTotalApproximate()).isTrue();
+
+    }
+
+    @Test
+    void rejectedWhenPoolIsFull(){
+
+        given(queryExecutor.submit(any(Callable.class))).willThrow(new TaskRejectedException("full"));
+
+        assertThatThrownBy(() -> repository.searchPageParallel(condition(), PageRequest.of(0, 2)))
+                .isInstanceOf(QueryTimeoutException.class);
+
+    }
+
+    private MemberSearchCondition condition(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("parallelTeam");
+        return condition;
+    }
+
+    private TransactionTemplate transaction(){
+        return new TransactionTemplate(transactionManager);
+    }
+}
@@ -0,0 +1,185 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import study.querydsl.dto.ApproximatePage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+class MemberSearchResultCacheTest {
+
+    @Test
+    void cacheHitByConditionAndPage(){
+
+        MemberSearchResultCache cache = new MemberSearchResultCache(true, Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+        AtomicInteger queryCount = new AtomicInteger();
+
+        MemberSearchCondition condition = condition("teamA", 20, 30);
+
+        cache.getOrCompute("searchPageSimple", condition, List.of(PageRequest.of(0, 10)), () -> rows(queryCount, 3));
+        cache.getOrCompute("searchPageSimple", condition, List.of(PageRequest.of(0, 10)), () -> rows(queryCount, 3));
+        cache.getOrCompute("searchPageSimple", condition, List.of(PageRequest.of(1, 10)), () -> rows(queryCount, 3)); // 다른 페이지
+
+        assertThat(queryCount.get()).isEqualTo(2);
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+        assertThat(cache.stats().getWeightBytes()).isPositive();
+
+    }
+
+    @Test
+    void cachedResultCannotBeModified(){
+
+        MemberSearchResultCache cache = new MemberSearchResultCache(true, Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+        AtomicInteger queryCount = new AtomicInteger();
+        MemberSearchCondition condition = condition("teamA", 20, 30);
+
+        List<MemberTeamDto> first = cache.getOrCompute("search", condition, List.of(), () -> rows(queryCount, 3));
+        assertThatThrownBy(() -> first.add(new MemberTeamDto(9L, "member9", 29, 1L, "teamA")))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> first.sort(null))
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        List<MemberTeamDto> second = cache.getOrCompute("search", condition, List.of(), () -> rows(queryCount, 3));
+        assertThat(second).hasSize(3);
+        assertThat(queryCount.get()).isEqualTo(1);
+
+        Page<MemberTeamDto> page = cache.getOrCompute("searchPageSimple", condition, List.of(PageRequest.of(0, 10)),
+                () -> new PageImpl<>(rows(queryCount, 3), PageRequest.of(0, 10), 3));
+        assertThatThrownBy(() -> page.getContent().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+
+    }
+
+    @Test
+    void invalidateOnlyMatchingEntries(){
+
+        MemberSearchResultCache cache = new MemberSearchResultCache(true, Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+        AtomicInteger queryCount = new AtomicInteger();
+
+        MemberSearchCondition teamA20To30 = condition("teamA", 20, 30);
+        MemberSearchCondition teamB = condition("teamB", null, null);
+        MemberSearchCondition all = new MemberSearchCondition();
+
+        cache.getOrCompute("search", teamA20To30, List.of(), () -> rows(queryCount, 1));
+        cache.getOrCompute("search", teamB, List.of(), () -> rows(queryCount, 1));
+        cache.getOrCompute("search", all, List.of(), () -> rows(queryCount, 1));
+
+        // teamB, 나이 15인 회원이 바뀜 -> teamA 20~30 결과는 그대로
+        cache.invalidate("member1", true, true, "teamB", 15);
+        assertThat(cache.stats().getSize()).isEqualTo(1);
+        assertThat(cache.stats().getInvalidations()).isEqualTo(2);
+
+        cache.getOrCompute("search", teamA20To30, List.of(), () -> rows(queryCount, 1));
+        assertThat(queryCount.get()).isEqualTo(3); // 캐시에서 꺼내 옴
+
+        // 팀 이름을 모르는 회원(프록시) -> 나이가 걸리면 팀 이름 조건이 있어도 지운다.
+        cache.invalidate("member2", true, false, null, 25);
+        assertThat(cache.stats().getSize()).isEqualTo(0);
+
+    }
+
+    @Test
+    void boundedByWeight(){
+
+        MemberSearchResultCache cache = new MemberSearchResultCache(true, Duration.ofMinutes(1), DataSize.ofKilobytes(4));
+        AtomicInteger queryCount = new AtomicInteger();
+
+        for(int page = 0; page < 20; page++){
+            cache.getOrCompute("searchPageSimple", new MemberSearchCondition(), List.of(PageRequest.of(page, 10)), () -> rows(queryCount, 10));
+        }
+
+        assertThat(cache.stats().getWeightBytes()).isLessThanOrEqualTo(DataSize.ofKilobytes(4).toBytes());
+        assertThat(cache.stats().getEvictions()).isPositive();
+
+    }
+
+    @Test
+    void approximateTotalNotCached(){
+
+        MemberSearchResultCache cache = new MemberSearchResultCache(true, Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+        AtomicInteger queryCount = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        // count 쿼리 시간 초과로 [전체 카운트]가 근사값 -> 다음 요청은 다시 조회한다.
+        for(int i = 0; i < 2; i++){
+            cache.getOrCompute("searchPageParallel", condition, List.of(PageRequest.of(0, 3)),
+                    () -> new ApproximatePage<>(rows(queryCount, 3), PageRequest.of(0, 3), 4, true));
+        }
+        assertThat(queryCount.get()).isEqualTo(2);
+
+        // 정확한 값이면 캐싱한다.
+        for(int i = 0; i < 2; i++){
+            cache.getOrCompute("searchPageParallel", condition, List.of(PageRequest.of(0, 3)),
+                    () -> new ApproximatePage<>(rows(queryCount, 3), PageRequest.of(0, 3), 10, false));
+        }
+        assertThat(queryCount.get()).isEqualTo(3);
+
+    }
+
+    @Test
+    void tooManyChangesInTransactionInvalidateAll(){
+
+        MemberSearchResultCache cache = new MemberSearchResultCache(true, Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+        AtomicInteger queryCount = new AtomicInteger();
+        MemberSearchCondition teamA20To30 = condition("teamA", 20, 30);
+
+        TransactionSynchronizationManager.initSynchronization(); // 트랜잭션 안에서 회원을 대량으로 바꾼 상황
+        try {
+            cache.getOrCompute("search", teamA20To30, List.of(), () -> rows(queryCount, 1));
+
+            // 걸리지 않는 회원은 지우지 않는다.
+            for(int i = 0; i < 1000; i++){
+                cache.invalidate("member" + i, true, true, "teamB", 15);
+            }
+            assertThat(cache.stats().getSize()).isEqualTo(1);
+
+            // 한도를 넘으면 전부 지우고, 그 뒤로는 회원마다 캐시를 훑지 않는다.
+            cache.invalidate("member1000", true, true, "teamB", 15);
+            assertThat(cache.stats().getSize()).isEqualTo(0);
+
+            cache.getOrCompute("search", teamA20To30, List.of(), () -> rows(queryCount, 1));
+            cache.invalidate("member1001", true, true, "teamA", 25);
+            assertThat(cache.stats().getSize()).isEqualTo(1);
+
+            // 트랜잭션이 끝나면 전부 지운다.
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            assertThat(cache.stats().getSize()).isEqualTo(0);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+    }
+
+    private MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+
+    private List<MemberTeamDto> rows(AtomicInteger queryCount, int size){
+        queryCount.incrementAndGet();
+        List<MemberTeamDto> rows = new ArrayList<>();
+        for(int i = 0; i < size; i++){
+            rows.add(new MemberTeamDto((long) i, "member" + i, 20 + i, 1L, "teamA"));
+        }
+        return rows;
+    }
+
+}
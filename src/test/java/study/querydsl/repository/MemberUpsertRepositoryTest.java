@@ -0,0 +1,111 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSyncRow;
+import study.querydsl.dto.UpsertResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+
+// 여러 쓰레드가 각자 트랜잭션으로 커밋하므로, 테스트에 @Transactional을 붙이지 않고 끝나면 직접 지운다.
+@SpringBootTest
+class MemberUpsertRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository repository;
+
+    @AfterEach
+    void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                new JPAQueryFactory(em)
+                        .delete(member)
+                        .where(member.username.startsWith("concurrentUpsert"))
+                        .execute());
+    }
+
+    @Test
+    void concurrentUpsertSameUsername() throws Exception {
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+
+        List<Future<UpsertResult>> results = new ArrayList<>();
+        for(int i = 0; i < threads; i++){
+            int age = i;
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                go.await();
+                return repository.upsertByUsername(List.of(new MemberSyncRow("concurrentUpsert", age, null)));
+            }));
+        }
+
+        ready.await();
+        go.countDown(); // 동시에 출발
+
+        long inserted = 0;
+        for (Future<UpsertResult> result : results) {
+            inserted += result.get().getInserted(); // 실패한 요청 없음
+        }
+        executor.shutdown();
+
+        // upsert끼리는 커밋될 때까지 순서대로 실행된다. : 회원은 1명이고, 나머지 요청은 그 회원을 update 했다.
+        Long count = new JPAQueryFactory(em)
+                .select(member.count())
+                .from(member)
+                .where(member.username.eq("concurrentUpsert"))
+                .fetchOne();
+        assertThat(count).isEqualTo(1);
+        assertThat(inserted).isEqualTo(1);
+
+    }
+
+    @Test
+    void duplicateUsernamesInOneBatch(){
+
+        UpsertResult result = repository.upsertByUsername(List.of(
+                new MemberSyncRow("concurrentUpsert", 10, null),
+                new MemberSyncRow("concurrentUpsert", 20, null)));
+
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(new JPAQueryFactory(em)
+                .select(member.age)
+                .from(member)
+                .where(member.username.eq("concurrentUpsert"))
+                .fetch()).containsExactly(20); // 마지막 row
+
+    }
+
+    @Test
+    void nullUsernameRejected(){
+
+        assertThatThrownBy(() -> repository.upsertByUsername(List.of(new MemberSyncRow(null, 10, null))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+}
@@ -0,0 +1,130 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+
+// writer 쓰레드가 자기 트랜잭션으로 커밋하므로, 테스트에 @Transactional을 붙이지 않고 끝나면 직접 지운다.
+@SpringBootTest(properties = "member.write-behind.enabled=true")
+class MemberWriteBehindQueueTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberWriteBehindQueue writeBehindQueue;
+
+    @AfterEach
+    void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                new JPAQueryFactory(em)
+                        .delete(member)
+                        .where(member.username.startsWith("writeBehind"))
+                        .execute());
+    }
+
+    @Test
+    void enqueue(){
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for(int i = 0; i < 50; i++){
+            futures.add(writeBehindQueue.enqueue(new Member("writeBehind" + i, i), null));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // 요청마다 서로 다른 회원 id로 완료된다.
+        List<Long> ids = futures.stream().map(CompletableFuture::join).toList();
+        assertThat(ids).doesNotContainNull().doesNotHaveDuplicates();
+
+        // future가 완료되었으면 이미 커밋된 상태이다.
+        Long count = new JPAQueryFactory(em)
+                .select(member.count())
+                .from(member)
+                .where(member.username.startsWith("writeBehind"))
+                .fetchOne();
+        assertThat(count).isEqualTo(50);
+
+    }
+
+    @Test
+    void onlyFailedRequestFails(){
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for(int i = 0; i < 20; i++){
+            futures.add(writeBehindQueue.enqueue(new Member("writeBehind" + i, i), null));
+        }
+        CompletableFuture<Long> bad = writeBehindQueue.enqueue(new Member("writeBehindBad", 0), -1L); // 없는 팀 : FK 위반
+        for(int i = 20; i < 40; i++){
+            futures.add(writeBehindQueue.enqueue(new Member("writeBehind" + i, i), null));
+        }
+
+        // 같은 batch에 있던 다른 요청들은 저장된다.
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        assertThat(futures.stream().map(CompletableFuture::join).toList()).doesNotContainNull().doesNotHaveDuplicates();
+        assertThatThrownBy(bad::join).isInstanceOf(CompletionException.class);
+
+        Long count = new JPAQueryFactory(em)
+                .select(member.count())
+                .from(member)
+                .where(member.username.startsWith("writeBehind"))
+                .fetchOne();
+        assertThat(count).isEqualTo(40);
+
+    }
+
+    @Test
+    void everyAcceptedRequestCompletesAfterShutdown() throws Exception {
+
+        // 컨텍스트의 큐는 다른 테스트가 계속 쓰므로, 이 테스트만 쓰는 큐를 따로 만들어서 종료한다.
+        MemberWriteBehindQueue queue = new MemberWriteBehindQueue(em, transactionManager, 1000, 10, 2, Duration.ofMillis(100));
+        queue.start();
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        List<Future<CompletableFuture<Long>>> requests = new ArrayList<>();
+        for(int i = 0; i < 200; i++){
+            String username = "writeBehindShutdown" + i;
+            requests.add(clients.submit(() -> queue.enqueue(new Member(username, 20), null)));
+        }
+
+        queue.shutdown(); // 요청이 들어오는 도중에 종료
+        clients.shutdown();
+
+        for (Future<CompletableFuture<Long>> request : requests) {
+            try {
+                CompletableFuture<Long> accepted = request.get(10, TimeUnit.SECONDS);
+                assertThat(accepted.get(10, TimeUnit.SECONDS)).isNotNull(); // 받은 요청은 모두 저장된다.
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class); // 종료 후의 요청은 바로 거절
+            }
+        }
+
+    }
+
+}
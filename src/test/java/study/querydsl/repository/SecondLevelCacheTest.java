@@ -0,0 +1,120 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.config.SecondLevelCacheConfig;
+import study.querydsl.dto.MemberSyncRow;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// 2차 캐시는 커밋된 데이터만 담으므로, 트랜잭션을 나눠서 실행하고 끝나면 직접 지운다.
+@SpringBootTest
+class SecondLevelCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberJpaRepository repository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    Long memberId;
+    Long teamId;
+
+    @AfterEach
+    void cleanUp(){
+        if(memberId != null){
+            transaction().executeWithoutResult(status -> {
+                em.remove(em.find(Member.class, memberId));
+                em.remove(em.find(Team.class, teamId));
+            });
+        }
+    }
+
+    @Test
+    void findByIdHitsSecondLevelCache(){
+
+        transaction().executeWithoutResult(status -> {
+            Team team = new Team("cachedTeam");
+            em.persist(team);
+            Member member = new Member("cachedMember", 10, team);
+            em.persist(member);
+            teamId = team.getId();
+            memberId = member.getId();
+        });
+
+        long memberHits = hits(SecondLevelCacheConfig.MEMBER);
+        long teamHits = hits(SecondLevelCacheConfig.TEAM);
+
+        // 트랜잭션(영속성 컨텍스트)이 달라도 DB를 거치지 않고 2차 캐시에서 꺼낸다.
+        for(int i = 0; i < 3; i++){
+            transaction().executeWithoutResult(status -> {
+                Member found = repository.findById(memberId).orElseThrow();
+                assertThat(found.getTeam().getName()).isEqualTo("cachedTeam"); // 팀 프록시 초기화도 캐시에서
+            });
+        }
+
+        assertThat(hits(SecondLevelCacheConfig.MEMBER) - memberHits).isEqualTo(3);
+        assertThat(hits(SecondLevelCacheConfig.TEAM) - teamHits).isEqualTo(3);
+
+    }
+
+    @Test
+    void upsertEvictsAfterCommit(){
+
+        transaction().executeWithoutResult(status -> {
+            Team team = new Team("cachedTeam");
+            em.persist(team);
+            Member member = new Member("cachedMember", 10, team);
+            em.persist(member);
+            teamId = team.getId();
+            memberId = member.getId();
+        });
+
+        transaction().executeWithoutResult(status -> {
+            memberRepository.upsertByUsername(List.of(new MemberSyncRow("cachedMember", 20, teamId)));
+
+            // 커밋 전에 다른 트랜잭션이 옛 row(나이 10)를 읽어서 2차 캐시에 다시 넣는다.
+            CompletableFuture.runAsync(() -> transaction().executeWithoutResult(other ->
+                    assertThat(em.find(Member.class, memberId).getAge()).isEqualTo(10))).join();
+        });
+
+        // 커밋된 뒤에 한 번 더 비웠으므로, 옛 값이 남아 있지 않다.
+        assertThat(emf.getCache().contains(Member.class, memberId)).isFalse();
+        transaction().executeWithoutResult(status ->
+                assertThat(repository.findById(memberId).orElseThrow().getAge()).isEqualTo(20));
+
+    }
+
+    private TransactionTemplate transaction(){
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private long hits(String region){
+        CacheRegionStatistics statistics = emf.unwrap(SessionFactory.class).getStatistics().getCacheRegionStatistics(region);
+        return statistics.getHitCount();
+    }
+
+}
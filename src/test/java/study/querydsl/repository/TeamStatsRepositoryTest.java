@@ -0,0 +1,202 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+
+// 통계는 커밋 직전에 갱신되므로, 테스트에 @Transactional을 붙이지 않고 트랜잭션마다 커밋한 뒤 끝나면 직접 지운다.
+@SpringBootTest
+class TeamStatsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    MemberBulkOperations bulkOperations;
+
+    List<Long> teamIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp(){
+        for (Long teamId : teamIds) {
+            jdbcTemplate.update("delete from member where team_id = ?", teamId);
+            jdbcTemplate.update("delete from team_stats where team_id = ?", teamId);
+            jdbcTemplate.update("delete from team where team_id = ?", teamId);
+        }
+    }
+
+    @Test
+    void incrementalStats(){
+
+        List<Long> memberIds = new ArrayList<>();
+        transaction().executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            Team teamC = new Team("teamC"); // 회원 없음
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(teamC);
+            teamIds.addAll(List.of(teamA.getId(), teamB.getId(), teamC.getId()));
+
+            for (Member member : List.of(
+                    new Member("statsMember1", 10, teamA),
+                    new Member("statsMember2", 20, teamA),
+                    new Member("statsMember3", 30, teamB),
+                    new Member("statsMember4", 40, teamB))) {
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+        });
+
+        // 통계 row가 이미 있는 팀을 다른 트랜잭션에서 증분 갱신
+        transaction().executeWithoutResult(status -> {
+            em.find(Member.class, memberIds.get(0)).setAge(15);                                  // 나이 변경
+            em.find(Member.class, memberIds.get(3)).changeTeam(em.find(Team.class, teamIds.get(0))); // 팀 변경 (teamB의 최대 나이가 빠져 나감)
+            em.remove(em.find(Member.class, memberIds.get(1)));                                  // 삭제
+        });
+
+        List<TeamStatsDto> stats = findStats();
+
+        assertThat(stats).extracting("teamName").containsExactly("teamA", "teamB", "teamC");
+        assertThat(stats).extracting("memberCount").containsExactly(2L, 1L, 0L);
+        assertThat(stats).extracting("avgAge").containsExactly(27.5, 30.0, 0.0);
+        assertThat(stats).extracting("maxAge").containsExactly(40, 30, 0);
+
+        // 회원 전체를 GROUP BY 한 결과와 같다.
+        assertSameAsGroupBy(stats);
+
+    }
+
+    @Test
+    void rolledBackChangesAreNotCounted(){
+
+        transaction().executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            teamIds.add(teamA.getId());
+            em.persist(new Member("statsMember1", 10, teamA));
+        });
+
+        transaction().executeWithoutResult(status -> {
+            em.persist(new Member("statsMember2", 20, em.find(Team.class, teamIds.get(0))));
+            em.flush(); // 엔티티 리스너는 호출되지만, 통계는 커밋할 때만 반영된다.
+            status.setRollbackOnly();
+        });
+
+        assertThat(findStats()).extracting("memberCount").containsExactly(1L);
+        assertThat(findStats()).extracting("maxAge").containsExactly(10);
+
+    }
+
+    @Test
+    void statsAfterBulkOperation(){
+
+        transaction().executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            teamIds.add(teamA.getId());
+            for(int i = 1; i <= 10; i++){
+                em.persist(new Member("statsMember" + i, i * 10, teamA));
+            }
+        });
+
+        // 벌크 연산은 엔티티 리스너를 거치지 않으므로 전체 다시 집계된다.
+        bulkOperations.delete(member.username.startsWith("statsMember").and(member.age.gt(50)), 3, false);
+
+        List<TeamStatsDto> stats = findStats();
+        assertThat(stats).extracting("memberCount").containsExactly(5L);
+        assertThat(stats).extracting("maxAge").containsExactly(50);
+
+        assertSameAsGroupBy(stats);
+
+    }
+
+    @Test
+    void statsAfterBulkUpdate(){
+
+        transaction().executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamIds.addAll(List.of(teamA.getId(), teamB.getId()));
+            for(int i = 1; i <= 10; i++){
+                em.persist(new Member("statsMember" + i, i * 10, teamA));
+            }
+        });
+
+        // 나이/팀을 바꾸지 않는 update : 다시 집계하지 않아도 그대로 맞다.
+        bulkOperations.update(member.username.startsWith("statsMember"), clause -> clause.set(member.username, "statsRenamed"), 3, false);
+
+        // teamA -> teamB로 옮긴 회원 : 두 팀 모두 다시 집계된다.(update 후에는 조건 age > 50에 안 걸려도 옮겨 간 팀을 안다)
+        Team teamB = transaction().execute(status -> em.find(Team.class, teamIds.get(1)));
+        bulkOperations.update(member.team.id.eq(teamIds.get(0)).and(member.age.gt(50)),
+                clause -> clause.set(member.team, teamB).set(member.age, 1), 3, true);
+
+        List<TeamStatsDto> stats = findStats();
+        assertThat(stats).extracting("memberCount").containsExactly(5L, 5L);
+        assertThat(stats).extracting("maxAge").containsExactly(50, 1);
+
+        assertSameAsGroupBy(stats);
+
+    }
+
+    // 이 테스트에서 만든 팀만
+    private List<TeamStatsDto> findStats(){
+        return teamStatsRepository.findAll().stream()
+                .filter(dto -> teamIds.contains(dto.getTeamId()))
+                .toList();
+    }
+
+    private void assertSameAsGroupBy(List<TeamStatsDto> stats){
+
+        List<Tuple> groupBy = new JPAQueryFactory(em)
+                .select(team.id, member.count(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .where(team.id.in(teamIds))
+                .groupBy(team.id)
+                .fetch();
+
+        for (Tuple row : groupBy) {
+            TeamStatsDto found = stats.stream()
+                    .filter(dto -> dto.getTeamId().equals(row.get(team.id)))
+                    .findFirst()
+                    .orElseThrow();
+            assertThat(found.getMemberCount()).isEqualTo(row.get(member.count()));
+            assertThat(found.getMaxAge()).isEqualTo(row.get(member.age.max()));
+        }
+    }
+
+    private TransactionTemplate transaction(){
+        return new TransactionTemplate(transactionManager);
+    }
+
+}